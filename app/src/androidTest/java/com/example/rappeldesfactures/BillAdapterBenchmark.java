@@ -0,0 +1,92 @@
+package com.example.rappeldesfactures;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation benchmark for binding rows of the bill list. Results are written to logcat
+ * under the "BillAdapterBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BillAdapterBenchmark {
+    private static final String TAG = "BillAdapterBenchmark";
+    private static final int ROWS = 20;
+    private static final int WARMUP_BINDS = 200;
+    private static final int MEASURED_BINDS = 2000;
+
+    @Test
+    @SuppressWarnings("deprecation") // Debug alloc counting is the only per-thread counter
+    public void bindingPrecomputedRows_doesNotAllocate() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = new ContextThemeWrapper(
+                    InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                    R.style.Theme_RappelDesFactures);
+            BillRowModel.Factory factory = new BillRowModel.Factory(context);
+            BillAdapter adapter = new BillAdapter(context, bill -> { });
+            BillAdapter.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+            long today = BillDates.todayEpochDay();
+            List<Bill> bills = new ArrayList<>();
+            List<BillRowModel> rows = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                // Spread over every status: overdue, due today, due soon, upcoming and paid
+                Bill bill = new Bill(i + 1, "Facture " + i, Money.ofCents(12345L * (i + 1)),
+                        BillDates.formatEpochDay(today + i - 5), i % 7 == 0);
+                bills.add(bill);
+                rows.add(factory.build(bill, today, null));
+            }
+
+            // Before: every bind formatted the date, the amount and the status itself
+            for (int i = 0; i < WARMUP_BINDS; i++) {
+                holder.bind(factory.build(bills.get(i % ROWS), today, null));
+            }
+            long formattingAllocs = countAllocations(() -> {
+                for (int i = 0; i < MEASURED_BINDS; i++) {
+                    holder.bind(factory.build(bills.get(i % ROWS), today, null));
+                }
+            });
+
+            // After: binding copies fields of a row model built ahead of time
+            for (int i = 0; i < WARMUP_BINDS; i++) {
+                holder.bind(rows.get(i % ROWS));
+            }
+            long precomputedAllocs = countAllocations(() -> {
+                for (int i = 0; i < MEASURED_BINDS; i++) {
+                    holder.bind(rows.get(i % ROWS));
+                }
+            });
+
+            Log.i(TAG, "allocations per bind, formatting on bind: " + formattingAllocs / MEASURED_BINDS
+                    + ", precomputed rows: " + precomputedAllocs / MEASURED_BINDS);
+            // Not a single allocation over all the measured binds, not just under one per bind
+            assertEquals(0, precomputedAllocs);
+            assertTrue(precomputedAllocs < formattingAllocs);
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long countAllocations(Runnable work) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            work.run();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        return Debug.getThreadAllocCount();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.rappeldesfactures;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented micro-benchmarks for BillDatabaseHelper, run on a throwaway database file.
+ * Results are written to logcat under the "BillDbBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BillDatabaseBenchmark {
+    private static final String TAG = "BillDbBenchmark";
+    private static final String BENCHMARK_DB = "bills_benchmark.db";
+    private static final int WARMUP_CALLS = 20;
+    private static final int MEASURED_CALLS = 200;
+    private static final int HISTORY_SIZE = 5000;
+    private static final int PAGE_SIZE = 50;
+    private static final int[] SORT_FILTER_SIZES = {1000, 10000, 100000};
+
+    private Context context;
+    private long billId;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(BENCHMARK_DB);
+
+        BillDatabaseHelper helper = new BillDatabaseHelper(context, BENCHMARK_DB);
+        billId = helper.addBill(new Bill("Redal", Money.ofCents(35000), "2030-01-15", false));
+        helper.close();
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(BENCHMARK_DB);
+    }
+
+    @Test
+    public void sharedConnection_vsReopeningPerCall() {
+        // Before: every call opened the file, ran the open-time setup and closed it again
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            getBillWithFreshConnection();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            assertNotNull(getBillWithFreshConnection());
+        }
+        long perCallReopen = (System.nanoTime() - start) / MEASURED_CALLS;
+
+        // After: one long-lived connection, as owned by BillReminderApplication
+        BillDatabaseHelper shared = new BillDatabaseHelper(context, BENCHMARK_DB);
+        try {
+            for (int i = 0; i < WARMUP_CALLS; i++) {
+                shared.getBillById(billId);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                assertNotNull(shared.getBillById(billId));
+            }
+        } finally {
+            shared.close();
+        }
+        long perCallShared = (System.nanoTime() - start) / MEASURED_CALLS;
+
+        Log.i(TAG, "getBillById reopen per call: " + perCallReopen / 1000 + " us, shared connection: "
+                + perCallShared / 1000 + " us");
+    }
+
+    @Test
+    public void firstPage_staysFlatAsHistoryGrows() {
+        BillDatabaseHelper helper = new BillDatabaseHelper(context, BENCHMARK_DB);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < HISTORY_SIZE; i++) {
+                    helper.addBill(new Bill("Facture " + i, Money.ofCents(1000 + i),
+                            BillDates.formatEpochDay(18000 + i % 2000), i % 3 != 0));
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            long start = System.nanoTime();
+            List<Bill> all = helper.getAllBills();
+            long fullLoad = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Bill> firstPage = helper.getBillsPage(null, PAGE_SIZE);
+            long firstPageLoad = System.nanoTime() - start;
+
+            // A deep page costs the same as the first one: it is a seek, not an offset scan
+            Bill deepKey = all.get(all.size() - PAGE_SIZE - 1);
+            start = System.nanoTime();
+            List<Bill> deepPage = helper.getBillsPage(deepKey, PAGE_SIZE);
+            long deepPageLoad = System.nanoTime() - start;
+
+            Log.i(TAG, "rows=" + all.size() + " getAllBills: " + fullLoad / 1000 + " us, first page: "
+                    + firstPageLoad / 1000 + " us, last page: " + deepPageLoad / 1000 + " us");
+            assertEquals(PAGE_SIZE, firstPage.size());
+            assertEquals(PAGE_SIZE, deepPage.size());
+            assertEquals(all.get(all.size() - PAGE_SIZE).getId(), deepPage.get(0).getId());
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void sortAndFilter_pushedDownVsInMemory() {
+        // Unpaid bills due this month or recurring, in each sort order
+        long today = BillDates.todayEpochDay();
+        BillFilter filter = BillFilter.and(BillFilter.predicate(BillFilterIndex.UNPAID),
+                BillFilter.or(BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH),
+                        BillFilter.predicate(BillFilterIndex.RECURRING)));
+        int inserted = 0;
+        for (int rows : SORT_FILTER_SIZES) {
+            BillDatabaseHelper helper = new BillDatabaseHelper(context, BENCHMARK_DB);
+            try {
+                inserted += insertBills(helper, rows - inserted, inserted, today);
+                for (int sortOption = BillSortIndex.SORT_DUE_DATE; sortOption <= BillSortIndex.SORT_STATUS; sortOption++) {
+                    BillQuery query = new BillQuery(sortOption, filter, today);
+
+                    // Before: load every bill, index them, sort and filter in memory
+                    long start = System.nanoTime();
+                    List<Bill> all = helper.getAllBills();
+                    BillSortIndex sortIndex = new BillSortIndex(today);
+                    BillFilterIndex filterIndex = new BillFilterIndex(today);
+                    sortIndex.putAll(all);
+                    filterIndex.putAll(all);
+                    BitSet matching = filter.evaluate(filterIndex);
+                    List<Bill> inMemory = new ArrayList<>(PAGE_SIZE);
+                    for (Bill bill : sortIndex.getSorted(sortOption, today)) {
+                        if (inMemory.size() == PAGE_SIZE) {
+                            break;
+                        }
+                        if (matching.get(filterIndex.slotOf(bill.getId()))) {
+                            inMemory.add(bill);
+                        }
+                    }
+                    long inMemoryLoad = System.nanoTime() - start;
+
+                    // After: SQLite sorts and filters, and only the first page is read
+                    start = System.nanoTime();
+                    List<Bill> pushedDown = helper.getBillsPage(query, null, PAGE_SIZE);
+                    long pushedDownLoad = System.nanoTime() - start;
+
+                    // The next page is a keyset seek that continues the same order
+                    List<Bill> nextPage = helper.getBillsPage(query, pushedDown.get(pushedDown.size() - 1), PAGE_SIZE);
+
+                    Log.i(TAG, "rows=" + rows + " sort=" + sortOption + " in memory: " + inMemoryLoad / 1000
+                            + " us, pushed down: " + pushedDownLoad / 1000 + " us");
+                    assertEquals(ids(inMemory), ids(pushedDown));
+                    assertFalse(nextPage.isEmpty());
+                    assertTrue(query.order().compare(pushedDown.get(pushedDown.size() - 1), nextPage.get(0)) < 0);
+                }
+            } finally {
+                helper.close();
+            }
+        }
+    }
+
+    // Add 'count' bills numbered from 'first': mixed amounts, names, due dates around
+    // today, paid states and recurrences
+    private static int insertBills(BillDatabaseHelper helper, int count, int first, long today) {
+        String[] names = {"Électricité", "eau", "Internet", "assurance", "Loyer", "Gaz"};
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = first; i < first + count; i++) {
+                Bill bill = new Bill(names[i % names.length] + " " + i, Money.ofCents(1000 + (i * 37) % 50000),
+                        BillDates.formatEpochDay(today - 400 + (i * 7) % 800), i % 3 == 0);
+                bill.setRecurrenceType(i % 4 == 0 ? Bill.RECURRENCE_MONTHLY : Bill.RECURRENCE_NONE);
+                helper.addBill(bill);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
+    private static List<Long> ids(List<Bill> bills) {
+        List<Long> ids = new ArrayList<>(bills.size());
+        for (Bill bill : bills) {
+            ids.add(bill.getId());
+        }
+        return ids;
+    }
+
+    private Bill getBillWithFreshConnection() {
+        BillDatabaseHelper helper = new BillDatabaseHelper(context, BENCHMARK_DB);
+        try {
+            return helper.getBillById(billId);
+        } finally {
+            helper.close();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.rappeldesfactures;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented checks of the SQL kept by BillDatabaseHelper, run on a throwaway database file.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BillDatabaseHelperTest {
+    private static final String TEST_DB = "bills_test.db";
+
+    private Context context;
+    private BillDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new BillDatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void monthlySummary_followsInsertsUpdatesAndDeletes() {
+        long january = BillDates.toEpochDay(2024, 1, 1);
+        long february = BillDates.toEpochDay(2024, 2, 1);
+        long water = helper.addBill(new Bill("Redal", Money.ofCents(35000), "2024-01-31", false));
+        long power = helper.addBill(new Bill("ONEE", Money.ofCents(12050), "2024-01-01", true));
+        helper.addBill(new Bill("Internet", Money.ofCents(24900), "2024-02-29", false));
+
+        assertMonth(helper.getMonthSummary(january), 1, 35000, 12050);
+        assertMonth(helper.getMonthSummary(february), 1, 24900, 0);
+
+        // Moving a bill to another month and paying it updates both months
+        Bill moved = helper.getBillById(water);
+        moved.setDueDate("2024-02-01");
+        moved.setPaid(true);
+        helper.updateBill(moved);
+        assertMonth(helper.getMonthSummary(january), 0, 0, 12050);
+        assertMonth(helper.getMonthSummary(february), 1, 24900, 35000);
+
+        helper.deleteBill(power);
+        List<MonthSummary> trend = helper.getMonthlySummaries(BillDates.toEpochDay(2023, 12, 1), 4);
+        assertEquals(4, trend.size());
+        assertMonth(trend.get(0), 0, 0, 0); // no bill that month
+        assertMonth(trend.get(1), 0, 0, 0);
+        assertMonth(trend.get(2), 1, 24900, 35000);
+        assertEquals(BillDates.toEpochDay(2024, 3, 1), trend.get(3).monthStartEpochDay);
+    }
+
+    @Test
+    public void overdueCount_addsPreviousMonthsToThisMonth() {
+        helper.addBill(new Bill("Loyer", Money.ofCents(400000), "2023-11-05", false));
+        helper.addBill(new Bill("Gaz", Money.ofCents(9000), "2024-03-02", false));
+        helper.addBill(new Bill("Eau", Money.ofCents(9000), "2024-03-10", false)); // due today
+        helper.addBill(new Bill("Payée", Money.ofCents(9000), "2024-03-01", true));
+
+        assertEquals(2, helper.getOverdueCount(BillDates.toEpochDay(2024, 3, 10)));
+    }
+
+    @Test
+    public void reminders_nextTimeAndDueBillsFollowTheRegistry() {
+        long rent = helper.addBill(new Bill("Loyer", Money.ofCents(400000), "2024-03-05", false));
+        long paid = helper.addBill(new Bill("Payée", Money.ofCents(9000), "2024-03-05", true));
+        long water = helper.addBill(new Bill("Eau", Money.ofCents(9000), "2024-03-10", false));
+        int tenOClock = ReminderTimes.DEFAULT_MINUTE_OF_DAY;
+        long rentAt = ReminderTimes.reminderTime(BillDates.toEpochDay(2024, 3, 5), 1, tenOClock);
+        long waterEarlyAt = ReminderTimes.reminderTime(BillDates.toEpochDay(2024, 3, 10), 3, tenOClock);
+        long waterAt = ReminderTimes.reminderTime(BillDates.toEpochDay(2024, 3, 10), 1, tenOClock);
+        assertEquals(-1, helper.getNextReminderTime());
+
+        helper.addReminder(rent, BillDates.toEpochDay(2024, 3, 5), 1, rentAt);
+        helper.addReminder(paid, BillDates.toEpochDay(2024, 3, 5), 1, rentAt);
+        helper.addReminder(water, BillDates.toEpochDay(2024, 3, 10), 3, waterEarlyAt);
+        helper.addReminder(water, BillDates.toEpochDay(2024, 3, 10), 1, waterAt);
+        assertEquals(rentAt, helper.getNextReminderTime());
+
+        // Paid bills are not reminded, but their reminder is consumed all the same
+        List<Bill> due = helper.getBillsWithRemindersDue(rentAt);
+        assertEquals(1, due.size());
+        assertEquals(rent, due.get(0).getId());
+        helper.markRemindersFired(rentAt);
+        assertEquals(BillDatabaseHelper.REMINDER_FIRED, helper.getReminders(rent).get(0).state);
+
+        // Each offset of a plan is a reminder of its own
+        assertEquals(waterEarlyAt, helper.getNextReminderTime());
+        helper.markRemindersFired(waterEarlyAt);
+        assertEquals(waterAt, helper.getNextReminderTime());
+        assertEquals(1, helper.getPendingReminders().size());
+        assertEquals(1, helper.getPendingReminders().get(0).offsetDays);
+
+        helper.deleteReminders(water);
+        assertEquals(-1, helper.getNextReminderTime());
+        helper.deleteRemindersDueBefore(BillDates.toEpochDay(2024, 3, 6));
+        assertTrue(helper.getReminders(rent).isEmpty());
+    }
+
+    @Test
+    public void recurringBill_addsOccurrencesUpToTheHorizon() {
+        long today = BillDates.todayEpochDay();
+        Bill coffee = new Bill("Café", Money.ofCents(2000), BillDates.formatEpochDay(today), false);
+        coffee.setRecurrenceType(Bill.RECURRENCE_WEEKLY);
+        coffee.setRecurrenceInterval(1);
+        long seriesId = helper.getBillById(helper.addBill(coffee)).getSeriesId();
+        assertTrue(seriesId > 0);
+
+        // Today and the next six weeks (42 days) are within the 45-day horizon
+        List<Bill> occurrences = helper.getAllBills();
+        assertEquals(7, occurrences.size());
+        for (int i = 0; i < occurrences.size(); i++) {
+            assertEquals(seriesId, occurrences.get(i).getSeriesId());
+            assertEquals(today + 7L * i, occurrences.get(i).getDueEpochDay());
+        }
+        assertEquals(today + 49, helper.getNextSeriesDueDay());
+
+        // Missed cycles are all caught up in one run
+        assertEquals(2, helper.materializeSeries(today + 56));
+        assertEquals(0, helper.materializeSeries(today + 56));
+        List<Bill> all = helper.getAllBills();
+        assertEquals(9, all.size());
+
+        // Deleting an earlier occurrence keeps the series, deleting the latest ends it
+        helper.deleteBill(all.get(0).getId());
+        assertEquals(today + 63, helper.getNextSeriesDueDay());
+        helper.deleteBill(all.get(8).getId());
+        assertEquals(-1, helper.getNextSeriesDueDay());
+    }
+
+    @Test
+    public void editingTheLiveOccurrence_replansTheSeries() {
+        long today = BillDates.todayEpochDay();
+        Bill coffee = new Bill("Café", Money.ofCents(2000), BillDates.formatEpochDay(today), false);
+        coffee.setRecurrenceType(Bill.RECURRENCE_WEEKLY);
+        coffee.setRecurrenceInterval(1);
+        long first = helper.addBill(coffee);
+        assertEquals(7, helper.getAllBills().size());
+
+        // A new amount applies to the occurrences already added, not 45 days later
+        Bill edited = helper.getBillById(first);
+        edited.setAmount(Money.ofCents(3000));
+        assertEquals(1, helper.updateBill(edited));
+        List<Bill> occurrences = helper.getAllBills();
+        assertEquals(7, occurrences.size());
+        for (int i = 0; i < occurrences.size(); i++) {
+            assertEquals(Money.ofCents(3000), occurrences.get(i).getAmount());
+            assertEquals(today + 7L * i, occurrences.get(i).getDueEpochDay());
+        }
+        assertEquals(today + 49, helper.getNextSeriesDueDay());
+
+        // A new rule replaces them by occurrences of the new rule, from the edited one
+        edited = helper.getBillById(first);
+        edited.setRecurrenceType(Bill.RECURRENCE_MONTHLY);
+        assertEquals(1, helper.updateBill(edited));
+        long nextMonth = BillDates.toLocalDate(today).plusMonths(1).toEpochDay();
+        occurrences = helper.getAllBills();
+        assertEquals(2, occurrences.size());
+        assertEquals(first, occurrences.get(0).getId());
+        assertEquals(nextMonth, occurrences.get(1).getDueEpochDay());
+        assertEquals(Bill.RECURRENCE_MONTHLY, occurrences.get(1).getRecurrenceType());
+        assertEquals(BillDates.toLocalDate(today).plusMonths(2).toEpochDay(), helper.getNextSeriesDueDay());
+
+        // Paying it leaves the series alone, and editing it once paid no longer changes
+        // the rule of the occurrences to come
+        Bill paid = helper.getBillById(first);
+        paid.setPaid(true);
+        assertEquals(1, helper.updateBill(paid));
+        paid = helper.getBillById(first);
+        paid.setAmount(Money.ofCents(100));
+        assertEquals(1, helper.updateBill(paid));
+        occurrences = helper.getAllBills();
+        assertEquals(2, occurrences.size());
+        assertEquals(Money.ofCents(100), occurrences.get(0).getAmount());
+        assertEquals(Money.ofCents(3000), occurrences.get(1).getAmount());
+        assertEquals(Money.ofCents(3000), helper.getAllSeries().get(0).first.getAmount());
+    }
+
+    @Test
+    public void v10Migration_keepsSameNamedChainsApart() {
+        // A v9 database with two monthly "Loyer" chains, on the 5th and on the 20th
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+        SQLiteDatabase v9 = context.openOrCreateDatabase(TEST_DB, Context.MODE_PRIVATE, null);
+        v9.execSQL("CREATE TABLE bills(_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL," +
+                " amount INTEGER NOT NULL, due_date INTEGER NOT NULL, is_paid INTEGER NOT NULL," +
+                " recurrence_type INTEGER NOT NULL DEFAULT 0, recurrence_interval INTEGER NOT NULL DEFAULT 1," +
+                " name_key TEXT NOT NULL DEFAULT '', reminder_offsets INTEGER NOT NULL DEFAULT 2," +
+                " reminder_minute INTEGER NOT NULL DEFAULT 600)");
+        long fifthPaid = insertV9Bill(v9, BillDates.toEpochDay(2024, 1, 5), true);
+        long fifth = insertV9Bill(v9, BillDates.toEpochDay(2024, 2, 5), false);
+        long twentiethPaid = insertV9Bill(v9, BillDates.toEpochDay(2024, 1, 20), true);
+        long twentieth = insertV9Bill(v9, BillDates.toEpochDay(2024, 2, 20), false);
+        v9.setVersion(9);
+        v9.close();
+
+        helper = new BillDatabaseHelper(context, TEST_DB);
+        List<BillSeries> series = helper.getAllSeries();
+        assertEquals(2, series.size());
+        series.sort(Comparator.comparingLong(one -> one.first.getDueEpochDay()));
+        assertEquals(BillDates.toEpochDay(2024, 2, 5), series.get(0).first.getDueEpochDay());
+        assertEquals(BillDates.toEpochDay(2024, 3, 5), series.get(0).nextDueEpochDay);
+        assertEquals(BillDates.toEpochDay(2024, 2, 20), series.get(1).first.getDueEpochDay());
+        assertEquals(BillDates.toEpochDay(2024, 3, 20), series.get(1).nextDueEpochDay);
+
+        long fifthSeries = series.get(0).first.getSeriesId();
+        long twentiethSeries = series.get(1).first.getSeriesId();
+        assertEquals(fifthSeries, helper.getBillById(fifthPaid).getSeriesId());
+        assertEquals(fifthSeries, helper.getBillById(fifth).getSeriesId());
+        assertEquals(twentiethSeries, helper.getBillById(twentiethPaid).getSeriesId());
+        assertEquals(twentiethSeries, helper.getBillById(twentieth).getSeriesId());
+    }
+
+    @Test
+    public void searchIndex_followsInsertsRenamesAndDeletes() {
+        long water = helper.addBill(new Bill("Redal eau", Money.ofCents(35000), "2024-01-31", false));
+        long power = helper.addBill(new Bill("Électricité ONEE", Money.ofCents(12050), "2024-01-01", false));
+        long internet = helper.addBill(new Bill("Internet Maroc Telecom", Money.ofCents(24900), "2024-02-29", false));
+
+        assertSearch("red", water);
+        assertSearch("electricite", power); // case and accents folded
+        assertSearch("tele maroc", internet);
+        assertSearch("OR"); // a word, not an operator
+
+        Bill renamed = helper.getBillById(water);
+        renamed.setName("Eau potable");
+        helper.updateBill(renamed);
+        assertSearch("red");
+        assertSearch("pot", water);
+
+        helper.deleteBill(power);
+        assertSearch("onee");
+    }
+
+    private static void assertMonth(MonthSummary month, int unpaidCount, long unpaidCents, long paidCents) {
+        assertEquals(unpaidCount, month.unpaidCount);
+        assertEquals(unpaidCents, month.unpaidTotal.getCents());
+        assertEquals(paidCents, month.paidTotal.getCents());
+    }
+
+    private void assertSearch(String text, long... expectedIds) {
+        List<Bill> found = helper.searchBills(BillSearch.matchQuery(text), 10, null);
+        assertEquals(text, expectedIds.length, found.size());
+        for (int i = 0; i < expectedIds.length; i++) {
+            assertEquals(text, expectedIds[i], found.get(i).getId());
+        }
+    }
+
+    private static long insertV9Bill(SQLiteDatabase db, long dueEpochDay, boolean paid) {
+        ContentValues values = new ContentValues();
+        values.put("name", "Loyer");
+        values.put("name_key", "loyer");
+        values.put("amount", 400000);
+        values.put("due_date", dueEpochDay);
+        values.put("is_paid", paid ? 1 : 0);
+        values.put("recurrence_type", Bill.RECURRENCE_MONTHLY);
+        values.put("recurrence_interval", 1);
+        return db.insert("bills", null, values);
+    }
+}
@@ -2,9 +2,11 @@ package com.example.rappeldesfactures;
 
 import android.app.AlertDialog;
 import android.app.DatePickerDialog;
+import android.app.TimePickerDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.text.format.DateFormat;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
@@ -22,37 +24,41 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.Future;
 
 public class AddEditBillActivity extends AppCompatActivity {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-    private static final SimpleDateFormat DISPLAY_DATE_FORMAT = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-
     private EditText nameEditText, amountEditText, dueDateEditText, recurrenceIntervalEditText;
     private CheckBox isPaidCheckBox, isRecurringCheckBox;
     private Button saveButton, deleteButton;
     private Spinner recurrenceTypeSpinner;
     private LinearLayout recurringOptionsLayout;
     private TextView intervalUnitTextView;
+    private EditText reminderTimeEditText;
+    // Offsets offered by the form (days before the due date), in the order of the boxes
+    private static final int[] REMINDER_OFFSET_CHOICES = {7, 3, 1, 0};
+    private final CheckBox[] reminderOffsetCheckBoxes = new CheckBox[REMINDER_OFFSET_CHOICES.length];
 
-    private BillDatabaseHelper dbHelper;
+    private BillRepository repository;
+    private Future<Bill> pendingBillLoad;
     private long billId = -1;
-    private Calendar calendar;
+    private long dueEpochDay; // selected due date
+    private long seriesId; // series of the edited bill, 0 for none
+    // Reminder plan of the bill (see ReminderTimes); offsets the form does not offer are kept
+    private int reminderOffsets = ReminderTimes.DEFAULT_OFFSETS;
+    private int reminderMinuteOfDay = ReminderTimes.DEFAULT_MINUTE_OF_DAY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_edit_bill);
 
-        // Initialize calendar
-        calendar = Calendar.getInstance();
+        // Initialize the due date
+        dueEpochDay = BillDates.todayEpochDay();
 
-        // Initialize database helper
-        dbHelper = new BillDatabaseHelper(this);
+        // Database access goes through the asynchronous repository
+        repository = BillReminderApplication.getRepository(this);
 
         // Initialize toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -76,6 +82,15 @@ public class AddEditBillActivity extends AppCompatActivity {
         recurrenceIntervalEditText = findViewById(R.id.edit_recurrence_interval);
         intervalUnitTextView = findViewById(R.id.text_interval_unit);
 
+        // Reminder plan UI elements
+        reminderOffsetCheckBoxes[0] = findViewById(R.id.checkbox_reminder_7_days);
+        reminderOffsetCheckBoxes[1] = findViewById(R.id.checkbox_reminder_3_days);
+        reminderOffsetCheckBoxes[2] = findViewById(R.id.checkbox_reminder_1_day);
+        reminderOffsetCheckBoxes[3] = findViewById(R.id.checkbox_reminder_same_day);
+        reminderTimeEditText = findViewById(R.id.edit_reminder_time);
+        reminderTimeEditText.setOnClickListener(v -> showTimePickerDialog());
+        showReminderPlan();
+
         // Setup recurrence type spinner
         setupRecurrenceTypeSpinner();
 
@@ -107,7 +122,7 @@ public class AddEditBillActivity extends AppCompatActivity {
                 deleteButton.setVisibility(View.GONE);
 
                 // Set default due date to tomorrow
-                calendar.add(Calendar.DAY_OF_MONTH, 1);
+                dueEpochDay++;
                 updateDateDisplay();
             }
         } else {
@@ -116,29 +131,64 @@ public class AddEditBillActivity extends AppCompatActivity {
             deleteButton.setVisibility(View.GONE);
 
             // Set default due date to tomorrow
-            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            dueEpochDay++;
             updateDateDisplay();
         }
     }
 
     private void showDatePickerDialog() {
+        // DatePickerDialog months are 0-11
+        LocalDate dueDate = BillDates.toLocalDate(dueEpochDay);
         DatePickerDialog dialog = new DatePickerDialog(
                 this,
                 (view, year, month, dayOfMonth) -> {
-                    calendar.set(Calendar.YEAR, year);
-                    calendar.set(Calendar.MONTH, month);
-                    calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+                    dueEpochDay = BillDates.toEpochDay(year, month + 1, dayOfMonth);
                     updateDateDisplay();
                 },
-                calendar.get(Calendar.YEAR),
-                calendar.get(Calendar.MONTH),
-                calendar.get(Calendar.DAY_OF_MONTH)
+                dueDate.getYear(),
+                dueDate.getMonthValue() - 1,
+                dueDate.getDayOfMonth()
         );
         dialog.show();
     }
 
     private void updateDateDisplay() {
-        dueDateEditText.setText(DISPLAY_DATE_FORMAT.format(calendar.getTime()));
+        dueDateEditText.setText(BillDates.formatForDisplay(dueEpochDay));
+    }
+
+    private void showTimePickerDialog() {
+        TimePickerDialog dialog = new TimePickerDialog(
+                this,
+                (view, hourOfDay, minute) -> {
+                    reminderMinuteOfDay = hourOfDay * 60 + minute;
+                    updateReminderTimeDisplay();
+                },
+                reminderMinuteOfDay / 60,
+                reminderMinuteOfDay % 60,
+                DateFormat.is24HourFormat(this)
+        );
+        dialog.show();
+    }
+
+    private void showReminderPlan() {
+        for (int i = 0; i < REMINDER_OFFSET_CHOICES.length; i++) {
+            reminderOffsetCheckBoxes[i].setChecked(ReminderTimes.hasOffset(reminderOffsets, REMINDER_OFFSET_CHOICES[i]));
+        }
+        updateReminderTimeDisplay();
+    }
+
+    private void updateReminderTimeDisplay() {
+        reminderTimeEditText.setText(LocalTime.of(reminderMinuteOfDay / 60, reminderMinuteOfDay % 60).toString());
+    }
+
+    // The offsets ticked in the form, plus those of the bill the form does not offer
+    private int selectedReminderOffsets() {
+        int offsets = reminderOffsets;
+        for (int i = 0; i < REMINDER_OFFSET_CHOICES.length; i++) {
+            int bit = ReminderTimes.offsetBit(REMINDER_OFFSET_CHOICES[i]);
+            offsets = reminderOffsetCheckBoxes[i].isChecked() ? offsets | bit : offsets & ~bit;
+        }
+        return offsets;
     }
 
     private void setupRecurrenceTypeSpinner() {
@@ -186,36 +236,18 @@ public class AddEditBillActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        if (pendingBillLoad != null) {
+            pendingBillLoad.cancel(true);
+            pendingBillLoad = null;
+        }
+        super.onDestroy();
+    }
+
     private void loadBillData() {
         if (billId != -1) {
-            Bill bill = dbHelper.getBillById(billId);
-            if (bill != null) {
-                nameEditText.setText(bill.getName());
-                amountEditText.setText(String.format(Locale.getDefault(), "%.2f", bill.getAmount()));
-                dueDateEditText.setText(DISPLAY_DATE_FORMAT.format(bill.getDueDateAsDate()));
-                isPaidCheckBox.setChecked(bill.isPaid());
-
-                // Set recurring bill options
-                boolean isRecurring = bill.isRecurring();
-                isRecurringCheckBox.setChecked(isRecurring);
-                recurringOptionsLayout.setVisibility(isRecurring ? View.VISIBLE : View.GONE);
-
-                if (isRecurring) {
-                    recurrenceTypeSpinner.setSelection(bill.getRecurrenceType() - 1); // -1 because RECURRENCE_NONE = 0 and we don't show it in spinner
-                    recurrenceIntervalEditText.setText(String.valueOf(bill.getRecurrenceInterval()));
-                    updateIntervalUnitText(bill.getRecurrenceType());
-                }
-
-                // Set calendar to the bill's due date for date picker
-                try {
-                    Date dueDate = DATE_FORMAT.parse(bill.getDueDate());
-                    if (dueDate != null) {
-                        calendar.setTime(dueDate);
-                    }
-                } catch (ParseException e) {
-                    e.printStackTrace();
-                }
-            }
+            pendingBillLoad = repository.getBillById(billId, this::showBill);
         } else {
             // Set default due date to today
             updateDateDisplay();
@@ -229,10 +261,38 @@ public class AddEditBillActivity extends AppCompatActivity {
         }
     }
 
+    private void showBill(Bill bill) {
+        pendingBillLoad = null;
+        if (bill != null) {
+            nameEditText.setText(bill.getName());
+            amountEditText.setText(bill.getAmount().toPlainString());
+            dueDateEditText.setText(bill.getFormattedDueDate());
+            isPaidCheckBox.setChecked(bill.isPaid());
+
+            // Set recurring bill options
+            boolean isRecurring = bill.isRecurring();
+            isRecurringCheckBox.setChecked(isRecurring);
+            recurringOptionsLayout.setVisibility(isRecurring ? View.VISIBLE : View.GONE);
+
+            if (isRecurring) {
+                recurrenceTypeSpinner.setSelection(bill.getRecurrenceType() - 1); // -1 because RECURRENCE_NONE = 0 and we don't show it in spinner
+                recurrenceIntervalEditText.setText(String.valueOf(bill.getRecurrenceInterval()));
+                updateIntervalUnitText(bill.getRecurrenceType());
+            }
+
+            // Start the date picker on the bill's due date
+            dueEpochDay = bill.getDueEpochDay();
+
+            seriesId = bill.getSeriesId();
+            reminderOffsets = bill.getReminderOffsets();
+            reminderMinuteOfDay = bill.getReminderMinuteOfDay();
+            showReminderPlan();
+        }
+    }
+
     private void saveBill() {
         String name = nameEditText.getText().toString().trim();
         String amountStr = amountEditText.getText().toString().trim();
-        String dueDate = DATE_FORMAT.format(calendar.getTime());
         boolean isPaid = isPaidCheckBox.isChecked();
         boolean isRecurring = isRecurringCheckBox.isChecked();
 
@@ -264,10 +324,10 @@ public class AddEditBillActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        Money amount;
         try {
-            amount = Double.parseDouble(amountStr);
-            if (amount <= 0) {
+            amount = Money.parse(amountStr);
+            if (!amount.isPositive()) {
                 amountEditText.setError(getString(R.string.error_invalid_amount));
                 amountEditText.requestFocus();
                 return;
@@ -278,57 +338,61 @@ public class AddEditBillActivity extends AppCompatActivity {
             return;
         }
 
-        Bill bill;
+        // Every field of the bill comes from the form, so there is nothing to reload
+        Bill bill = new Bill();
         if (billId != -1) {
-            bill = dbHelper.getBillById(billId);
-            if (bill == null) {
-                bill = new Bill();
-                bill.setId(billId);
-            }
-        } else {
-            bill = new Bill();
+            bill.setId(billId);
         }
 
         bill.setName(name);
         bill.setAmount(amount);
-        bill.setDueDate(dueDate);
+        bill.setDueEpochDay(dueEpochDay);
         bill.setPaid(isPaid);
         bill.setRecurrenceType(isRecurring ? recurrenceType : Bill.RECURRENCE_NONE);
         bill.setRecurrenceInterval(recurrenceInterval);
+        bill.setReminderOffsets(selectedReminderOffsets());
+        bill.setReminderMinuteOfDay(reminderMinuteOfDay);
+        bill.setSeriesId(seriesId);
+
+        // Avoid a second submit while the write is queued
+        saveButton.setEnabled(false);
 
-        long result;
         if (billId != -1) {
-            result = dbHelper.updateBill(bill);
-            if (result > 0) {
-                Toast.makeText(this, R.string.bill_updated, Toast.LENGTH_SHORT).show();
-                // Update notification for this bill if it was updated
-                if (!isPaid) {
-                    scheduleNotification(bill);
-                } else if (isRecurring) {
-                    // If a recurring bill is marked as paid, create the next occurrence
-                    createNextRecurrence(bill);
+            repository.updateBill(bill, result -> {
+                if (isGone()) {
+                    return;
                 }
-            } else {
-                Toast.makeText(this, R.string.error_updating_bill, Toast.LENGTH_SHORT).show();
-            }
+                if (result > 0) {
+                    Toast.makeText(this, R.string.bill_updated, Toast.LENGTH_SHORT).show();
+                    setResult(RESULT_OK);
+                    finish();
+                } else {
+                    Toast.makeText(this, R.string.error_updating_bill, Toast.LENGTH_SHORT).show();
+                    saveButton.setEnabled(true);
+                }
+            });
         } else {
-            result = dbHelper.addBill(bill);
-            if (result > 0) {
-                bill.setId(result); // Set the ID of the new bill
-                Toast.makeText(this, R.string.bill_added, Toast.LENGTH_SHORT).show();
-                // Schedule notification for new bill
-                if (!isPaid) {
-                    scheduleNotification(bill);
+            repository.addBill(bill, result -> {
+                if (isGone()) {
+                    return;
                 }
-            } else {
-                Toast.makeText(this, R.string.error_adding_bill, Toast.LENGTH_SHORT).show();
-            }
+                if (result > 0) {
+                    bill.setId(result); // Set the ID of the new bill
+                    Toast.makeText(this, R.string.bill_added, Toast.LENGTH_SHORT).show();
+                    setResult(RESULT_OK);
+                    finish();
+                } else {
+                    Toast.makeText(this, R.string.error_adding_bill, Toast.LENGTH_SHORT).show();
+                    saveButton.setEnabled(true);
+                }
+            });
         }
+    }
 
-        if (result > 0) {
-            setResult(RESULT_OK);
-            finish();
-        }
+    // The writes are not cancelled with the screen, since that could drop a queued save,
+    // so their callbacks check that it is still there before showing anything
+    private boolean isGone() {
+        return isFinishing() || isDestroyed();
     }
 
     private void deleteBill() {
@@ -340,55 +404,23 @@ public class AddEditBillActivity extends AppCompatActivity {
                 .setTitle(R.string.delete_bill_title)
                 .setMessage(R.string.delete_bill_message)
                 .setPositiveButton(android.R.string.yes, (dialog, which) -> {
-                    if (dbHelper != null) {
-                        int result = dbHelper.deleteBill(billId);
+                    repository.deleteBill(billId, result -> {
+                        if (isGone()) {
+                            return;
+                        }
                         if (result > 0) {
-                            // Cancel any notifications for this bill
-                            cancelNotification(billId);
                             Toast.makeText(AddEditBillActivity.this, R.string.bill_deleted, Toast.LENGTH_SHORT).show();
                             setResult(RESULT_OK);
                             finish();
                         } else {
                             Toast.makeText(AddEditBillActivity.this, "Erreur lors de la suppression", Toast.LENGTH_SHORT).show();
                         }
-                    }
+                    });
                 })
                 .setNegativeButton(android.R.string.no, null)
                 .show();
     }
 
-    private void createNextRecurrence(Bill bill) {
-        // If bill is not recurring, don't create next recurrence
-        if (!bill.isRecurring()) {
-            return;
-        }
-
-        // Create a new bill for the next due date
-        Bill nextBill = new Bill();
-        nextBill.setName(bill.getName());
-        nextBill.setAmount(bill.getAmount());
-        nextBill.setDueDate(bill.getNextDueDate());
-        nextBill.setPaid(false);
-        nextBill.setRecurrenceType(bill.getRecurrenceType());
-        nextBill.setRecurrenceInterval(bill.getRecurrenceInterval());
-
-        // Save the next occurrence
-        long nextBillId = dbHelper.addBill(nextBill);
-        if (nextBillId > 0) {
-            nextBill.setId(nextBillId);
-            scheduleNotification(nextBill);
-        }
-    }
-
-    private void scheduleNotification(Bill bill) {
-        NotificationHelper.scheduleBillReminder(this, (int) bill.getId(),
-                bill.getName(), bill.getAmount(), bill.getDueDate());
-    }
-
-    private void cancelNotification(long billId) {
-        NotificationHelper.cancelBillReminder(this, (int) billId);
-    }
-
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
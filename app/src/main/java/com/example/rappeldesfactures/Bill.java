@@ -2,64 +2,87 @@ package com.example.rappeldesfactures;
 
 
 import java.io.Serializable;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
 
 public class Bill implements Serializable {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
     
     public static final int RECURRENCE_NONE = 0;
     public static final int RECURRENCE_DAILY = 1;
     public static final int RECURRENCE_WEEKLY = 2;
     public static final int RECURRENCE_MONTHLY = 3;
     public static final int RECURRENCE_YEARLY = 4;
+
+    // Statuses, in the order used by the "sort by status" option
+    public static final int STATUS_OVERDUE = 0;
+    public static final int STATUS_DUE_TODAY = 1;
+    public static final int STATUS_DUE_SOON = 2;
+    public static final int STATUS_UPCOMING = 3;
+    public static final int STATUS_PAID = 4;
+
+    private static final int DUE_SOON_DAYS = 3;
     
     private long id;
     private String name;
-    private double amount;
-    private String dueDate;
+    private Money amount = Money.ZERO;
+    // Due date as days since 1970-01-01, parsed once when the bill is built
+    private long dueEpochDay;
     private boolean isPaid;
     private int recurrenceType;
     private int recurrenceInterval;
+    // Reminder plan (see ReminderTimes): offsets mask and time of day
+    private int reminderOffsets = ReminderTimes.DEFAULT_OFFSETS;
+    private int reminderMinuteOfDay = ReminderTimes.DEFAULT_MINUTE_OF_DAY;
+    // Recurring series the bill is an occurrence of (bill_series table), 0 for none
+    private long seriesId;
 
     // Default constructor
     public Bill() {
     }
 
     // Constructor with all fields except ID (for new bills)
-    public Bill(String name, double amount, String dueDate, boolean isPaid) {
+    public Bill(String name, Money amount, String dueDate, boolean isPaid) {
         this.name = name;
         this.amount = amount;
-        this.dueDate = dueDate;
+        setDueDate(dueDate);
         this.isPaid = isPaid;
     }
 
     // Constructor with all fields including ID (for existing bills)
-    public Bill(long id, String name, double amount, String dueDate, boolean isPaid) {
+    public Bill(long id, String name, Money amount, String dueDate, boolean isPaid) {
         this.id = id;
         this.name = name;
         this.amount = amount;
-        this.dueDate = dueDate;
+        setDueDate(dueDate);
         this.isPaid = isPaid;
         this.recurrenceType = RECURRENCE_NONE;
         this.recurrenceInterval = 1;
     }
     
     // Constructor with all fields including recurrence
-    public Bill(long id, String name, double amount, String dueDate, boolean isPaid, 
+    public Bill(long id, String name, Money amount, String dueDate, boolean isPaid, 
                 int recurrenceType, int recurrenceInterval) {
         this.id = id;
         this.name = name;
         this.amount = amount;
-        this.dueDate = dueDate;
+        setDueDate(dueDate);
         this.isPaid = isPaid;
         this.recurrenceType = recurrenceType;
         this.recurrenceInterval = recurrenceInterval;
     }
 
+    // Copy constructor
+    public Bill(Bill other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.amount = other.amount;
+        this.dueEpochDay = other.dueEpochDay;
+        this.isPaid = other.isPaid;
+        this.recurrenceType = other.recurrenceType;
+        this.recurrenceInterval = other.recurrenceInterval;
+        this.reminderOffsets = other.reminderOffsets;
+        this.reminderMinuteOfDay = other.reminderMinuteOfDay;
+        this.seriesId = other.seriesId;
+    }
+
     // Getters and Setters
     public long getId() {
         return id;
@@ -77,20 +100,33 @@ public class Bill implements Serializable {
         this.name = name;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
     public String getDueDate() {
-        return dueDate;
+        return BillDates.formatEpochDay(dueEpochDay);
     }
 
     public void setDueDate(String dueDate) {
-        this.dueDate = dueDate;
+        try {
+            this.dueEpochDay = BillDates.parseEpochDay(dueDate);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            this.dueEpochDay = BillDates.todayEpochDay();
+        }
+    }
+
+    public long getDueEpochDay() {
+        return dueEpochDay;
+    }
+
+    public void setDueEpochDay(long dueEpochDay) {
+        this.dueEpochDay = dueEpochDay;
     }
 
     public boolean isPaid() {
@@ -117,77 +153,84 @@ public class Bill implements Serializable {
         this.recurrenceInterval = recurrenceInterval;
     }
     
+    public int getReminderOffsets() {
+        return reminderOffsets;
+    }
+
+    public void setReminderOffsets(int reminderOffsets) {
+        this.reminderOffsets = reminderOffsets;
+    }
+
+    public int getReminderMinuteOfDay() {
+        return reminderMinuteOfDay;
+    }
+
+    public void setReminderMinuteOfDay(int reminderMinuteOfDay) {
+        this.reminderMinuteOfDay = reminderMinuteOfDay;
+    }
+
+    public long getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(long seriesId) {
+        this.seriesId = seriesId;
+    }
+
     public boolean isRecurring() {
         return recurrenceType != RECURRENCE_NONE;
     }
     
     public String getNextDueDate() {
+        return BillDates.formatEpochDay(getNextDueEpochDay());
+    }
+
+    public long getNextDueEpochDay() {
+        return nextDueEpochDay(dueEpochDay, recurrenceType, recurrenceInterval);
+    }
+
+    // Due date following 'dueEpochDay' under a recurrence rule. Months and years keep
+    // the day of month, clamped to the end of shorter months. Stepping date to date
+    // drifts after a clamp: a series steps from its anchor (see RecurrenceIterator).
+    static long nextDueEpochDay(long dueEpochDay, int recurrenceType, int recurrenceInterval) {
         if (recurrenceType == RECURRENCE_NONE) {
-            return dueDate;
-        }
-        
-        try {
-            Date date = DATE_FORMAT.parse(dueDate);
-            if (date == null) return dueDate;
-            
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            
-            switch (recurrenceType) {
-                case RECURRENCE_DAILY:
-                    cal.add(Calendar.DAY_OF_MONTH, recurrenceInterval);
-                    break;
-                case RECURRENCE_WEEKLY:
-                    cal.add(Calendar.WEEK_OF_YEAR, recurrenceInterval);
-                    break;
-                case RECURRENCE_MONTHLY:
-                    cal.add(Calendar.MONTH, recurrenceInterval);
-                    break;
-                case RECURRENCE_YEARLY:
-                    cal.add(Calendar.YEAR, recurrenceInterval);
-                    break;
-            }
-            
-            return DATE_FORMAT.format(cal.getTime());
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return dueDate;
+            return dueEpochDay;
         }
+        return new RecurrenceIterator(dueEpochDay, recurrenceType, recurrenceInterval).occurrence(1);
     }
 
     // Utility methods
-    public Date getDueDateAsDate() {
-        try {
-            if (dueDate == null || dueDate.isEmpty()) {
-                return new Date();
-            }
-            return DATE_FORMAT.parse(dueDate);
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return new Date();
+    public String getFormattedDueDate() {
+        return BillDates.formatForDisplay(dueEpochDay);
+    }
+    
+    // Whole days from today to the due date (negative when overdue)
+    public long getDaysUntilDue(long todayEpochDay) {
+        return dueEpochDay - todayEpochDay;
+    }
+    
+    public int getStatus(long todayEpochDay) {
+        if (isPaid) {
+            return STATUS_PAID;
+        }
+        long daysUntilDue = getDaysUntilDue(todayEpochDay);
+        if (daysUntilDue < 0) {
+            return STATUS_OVERDUE;
+        } else if (daysUntilDue == 0) {
+            return STATUS_DUE_TODAY;
+        } else if (daysUntilDue <= DUE_SOON_DAYS) {
+            return STATUS_DUE_SOON;
+        } else {
+            return STATUS_UPCOMING;
         }
     }
     
     public String getFormattedAmount() {
-        return String.format(Locale.getDefault(), "%.2f", amount);
+        return amount.format();
     }
     
     public boolean isDueSoon(int daysThreshold) {
-        try {
-            if (dueDate == null || dueDate.isEmpty()) {
-                return false;
-            }
-            
-            Date today = new Date();
-            Date due = DATE_FORMAT.parse(dueDate);
-            
-            long diff = due.getTime() - today.getTime();
-            long daysDiff = diff / (24 * 60 * 60 * 1000);
-            
-            return daysDiff <= daysThreshold && daysDiff >= 0;
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return false;
-        }
+        long daysDiff = getDaysUntilDue(BillDates.todayEpochDay());
+        return daysDiff <= daysThreshold && daysDiff >= 0;
     }
 }
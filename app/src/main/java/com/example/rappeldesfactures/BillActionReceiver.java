@@ -0,0 +1,58 @@
+package com.example.rappeldesfactures;
+
+
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+// Actions of the reminder notifications ("Paid", "Snooze"), handled in the background
+// without starting any activity: the write is queued on the repository's writer (or
+// the scheduler's thread) and the broadcast is kept alive with goAsync until it is
+// done. Reminders follow the change on their own (see ReminderScheduler).
+public class BillActionReceiver extends BroadcastReceiver {
+    static final String ACTION_MARK_PAID = "com.example.rappeldesfactures.action.MARK_PAID";
+    static final String ACTION_SNOOZE = "com.example.rappeldesfactures.action.SNOOZE";
+    static final String EXTRA_BILL_ID = "bill_id";
+    static final String EXTRA_DUE_DATE = "bill_due_date"; // epoch day
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long billId = intent.getLongExtra(EXTRA_BILL_ID, -1);
+        if (billId == -1) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        String action = intent.getAction();
+        if (ACTION_MARK_PAID.equals(action)) {
+            PendingResult pendingResult = goAsync();
+            BillReminderApplication.getRepository(appContext).markPaid(billId, new BillRepository.Callback<Bill>() {
+                @Override
+                public void onResult(Bill result) {
+                    cancelNotification(appContext, billId);
+                    pendingResult.finish();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    e.printStackTrace();
+                    pendingResult.finish();
+                }
+            });
+        } else if (ACTION_SNOOZE.equals(action)) {
+            long dueEpochDay = intent.getLongExtra(EXTRA_DUE_DATE, Long.MIN_VALUE);
+            if (dueEpochDay == Long.MIN_VALUE) {
+                return;
+            }
+            cancelNotification(appContext, billId);
+            PendingResult pendingResult = goAsync();
+            ReminderScheduler.snooze(appContext, billId, dueEpochDay, pendingResult::finish);
+        }
+    }
+
+    // The bill's own notification; the system drops a digest once its last child is gone
+    private static void cancelNotification(Context context, long billId) {
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        notificationManager.cancel((int) billId);
+    }
+}
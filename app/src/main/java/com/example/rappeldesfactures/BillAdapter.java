@@ -3,144 +3,149 @@ package com.example.rappeldesfactures;
 
 
 import android.content.Context;
-import android.graphics.Color;
-import android.graphics.PorterDuff;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Shows the bills of the main screen. Every new list is handed over with submitBills():
+// the row models (see BillRowModel) are built on a background thread, then ListAdapter
+// diffs them against the current ones, also in the background, and only dispatches the
+// item inserts, removals, moves and changes. Re-sorting or filtering animates what moved
+// instead of rebinding every visible row, and binding a row is a plain field copy.
+public class BillAdapter extends ListAdapter<BillRowModel, BillAdapter.ViewHolder> {
+    // Shared by every adapter; each one only touches its own models from this thread
+    private static final Executor MODEL_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface OnBillClickListener {
+        void onBillClick(Bill bill);
+    }
+
+    private static final DiffUtil.ItemCallback<BillRowModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<BillRowModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BillRowModel oldRow, @NonNull BillRowModel newRow) {
+            return oldRow.bill.getId() == newRow.bill.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BillRowModel oldRow, @NonNull BillRowModel newRow) {
+            return oldRow.hasSameContent(newRow);
+        }
+    };
 
-public class BillAdapter extends ArrayAdapter<Bill> {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-    private static final SimpleDateFormat DISPLAY_DATE_FORMAT = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-    
     private final Context context;
-    private final List<Bill> bills;
+    private final OnBillClickListener clickListener;
+    private final BillRowModel.Factory modelFactory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Models of the last list built, by bill id (model thread only)
+    private Map<Long, BillRowModel> modelsById = new HashMap<>();
+    // Bumped for every submitBills() so that a superseded list is never shown (main thread)
+    private int submitGeneration;
 
-    public BillAdapter(Context context, List<Bill> bills) {
-        super(context, R.layout.bill_item, bills);
+    public BillAdapter(Context context, OnBillClickListener clickListener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.bills = bills;
+        this.clickListener = clickListener;
+        this.modelFactory = new BillRowModel.Factory(context);
+        setHasStableIds(true);
     }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        ViewHolder viewHolder;
-
-        if (convertView == null) {
-            LayoutInflater inflater = LayoutInflater.from(context);
-            convertView = inflater.inflate(R.layout.bill_item, parent, false);
-            
-            viewHolder = new ViewHolder();
-            viewHolder.nameTextView = convertView.findViewById(R.id.text_bill_name);
-            viewHolder.amountTextView = convertView.findViewById(R.id.text_bill_amount);
-            viewHolder.dueDateTextView = convertView.findViewById(R.id.text_bill_due_date);
-            viewHolder.statusTextView = convertView.findViewById(R.id.text_bill_status);
-            viewHolder.cardBackground = convertView.findViewById(R.id.bill_background);
-            viewHolder.billCard = convertView.findViewById(R.id.bill_card);
-            
-            convertView.setTag(viewHolder);
-        } else {
-            viewHolder = (ViewHolder) convertView.getTag();
+    // Show 'bills' in this order. The list must not be modified afterwards; commitCallback
+    // runs on the main thread once the rows are displayed.
+    public void submitBills(List<Bill> bills, Runnable commitCallback) {
+        long today = BillDates.todayEpochDay();
+        int generation = ++submitGeneration;
+        MODEL_EXECUTOR.execute(() -> {
+            List<BillRowModel> rows = buildRows(bills, today);
+            mainHandler.post(() -> {
+                if (generation == submitGeneration) {
+                    submitList(rows, commitCallback);
+                }
+            });
+        });
+    }
+
+    // Unchanged bills keep their model; only new or edited bills (or all of them, on a
+    // new day) are formatted again
+    private List<BillRowModel> buildRows(List<Bill> bills, long todayEpochDay) {
+        List<BillRowModel> rows = new ArrayList<>(bills.size());
+        Map<Long, BillRowModel> built = new HashMap<>(bills.size() * 2);
+        for (Bill bill : bills) {
+            BillRowModel row = modelFactory.build(bill, todayEpochDay, modelsById.get(bill.getId()));
+            rows.add(row);
+            built.put(bill.getId(), row);
         }
+        modelsById = built;
+        return rows;
+    }
 
-        // Get the current bill
-        Bill bill = bills.get(position);
-
-        // Set the bill data
-        viewHolder.nameTextView.setText(bill.getName() != null ? bill.getName() : "");
-        viewHolder.amountTextView.setText(String.format(Locale.getDefault(), "%.2f DH", bill.getAmount()));
-
-        // Format and set the due date
-        try {
-            String dueDateStr = bill.getDueDate();
-            if (dueDateStr == null || dueDateStr.isEmpty()) {
-                viewHolder.dueDateTextView.setText("");
-            } else {
-                Date dueDate = DATE_FORMAT.parse(dueDateStr);
-                if (dueDate != null) {
-                    viewHolder.dueDateTextView.setText(DISPLAY_DATE_FORMAT.format(dueDate));
-                }
-            }
-            
-            // Set bill status and styling
-            long daysUntilDue = getDaysUntilDue(bill.getDueDate());
-            int statusBgColor;
-            int statusTextColor = context.getResources().getColor(R.color.black);
-            int cardBgColor = context.getResources().getColor(R.color.white);
-            String statusText;
-            
-            if (bill.isPaid()) {
-                // Paid bill
-                statusText = context.getString(R.string.status_paid);
-                statusBgColor = context.getResources().getColor(R.color.bill_paid);
-                cardBgColor = context.getResources().getColor(R.color.bill_paid);
-            } else if (daysUntilDue < 0) {
-                // Overdue bill
-                statusText = context.getString(R.string.status_overdue);
-                statusBgColor = context.getResources().getColor(R.color.bill_overdue);
-                statusTextColor = context.getResources().getColor(R.color.red);
-            } else if (daysUntilDue == 0) {
-                // Due today
-                statusText = context.getString(R.string.status_due_today);
-                statusBgColor = context.getResources().getColor(R.color.bill_due_soon);
-                statusTextColor = context.getResources().getColor(R.color.orange);
-            } else if (daysUntilDue <= 3) {
-                // Due soon
-                statusText = context.getString(R.string.status_due_soon);
-                statusBgColor = context.getResources().getColor(R.color.bill_due_soon);
-                statusTextColor = context.getResources().getColor(R.color.orange);
-            } else {
-                // Upcoming
-                statusText = context.getString(R.string.days_remaining, daysUntilDue);
-                statusBgColor = context.getResources().getColor(R.color.bill_normal);
-                statusTextColor = context.getResources().getColor(R.color.primary);
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).bill.getId();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.bill_item, parent, false);
+        ViewHolder viewHolder = new ViewHolder(view);
+        view.setOnClickListener(v -> {
+            int position = viewHolder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                clickListener.onBillClick(getItem(position).bill);
             }
-            
-            // Apply the styles
-            viewHolder.statusTextView.setText(statusText);
-            viewHolder.statusTextView.setTextColor(statusTextColor);
-            viewHolder.statusTextView.getBackground().setColorFilter(
-                    statusBgColor, PorterDuff.Mode.SRC_ATOP);
-            viewHolder.cardBackground.setBackgroundColor(cardBgColor);
-        } catch (ParseException e) {
-            e.printStackTrace();
-            viewHolder.dueDateTextView.setText(bill.getDueDate());
-            viewHolder.statusTextView.setText("");
-        }
+        });
+        return viewHolder;
+    }
 
-        return convertView;
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder viewHolder, int position) {
+        viewHolder.bind(getItem(position));
     }
 
-    private long getDaysUntilDue(String dueDate) throws ParseException {
-        if (dueDate == null || dueDate.isEmpty()) {
-            return 0; // Default to 0 days if no due date
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView nameTextView;
+        final TextView amountTextView;
+        final TextView dueDateTextView;
+        final TextView statusTextView;
+        final LinearLayout cardBackground;
+        final CardView billCard;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            nameTextView = itemView.findViewById(R.id.text_bill_name);
+            amountTextView = itemView.findViewById(R.id.text_bill_amount);
+            dueDateTextView = itemView.findViewById(R.id.text_bill_due_date);
+            statusTextView = itemView.findViewById(R.id.text_bill_status);
+            cardBackground = itemView.findViewById(R.id.bill_background);
+            billCard = itemView.findViewById(R.id.bill_card);
         }
-        
-        Date today = new Date();
-        Date due = DATE_FORMAT.parse(dueDate);
-        
-        long diffInMillis = due.getTime() - today.getTime();
-        return TimeUnit.DAYS.convert(diffInMillis, TimeUnit.MILLISECONDS);
-    }
 
-    private static class ViewHolder {
-        TextView nameTextView;
-        TextView amountTextView;
-        TextView dueDateTextView;
-        TextView statusTextView;
-        LinearLayout cardBackground;
-        CardView billCard;
+        // Everything was computed by BillRowModel.Factory; nothing is allocated here
+        void bind(BillRowModel row) {
+            nameTextView.setText(row.nameText);
+            amountTextView.setText(row.amountText);
+            dueDateTextView.setText(row.dueDateText);
+            statusTextView.setText(row.statusText);
+            statusTextView.setTextColor(row.statusTextColor);
+            statusTextView.getBackground().setColorFilter(row.statusBackgroundFilter);
+            cardBackground.setBackgroundColor(row.cardBackgroundColor);
+        }
     }
 }
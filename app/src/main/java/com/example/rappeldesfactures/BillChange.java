@@ -0,0 +1,44 @@
+package com.example.rappeldesfactures;
+
+
+// One committed write to the bills table, as published by BillDatabaseHelper to its
+// change listeners. Inserts and updates carry a copy of the bill as it was written;
+// deletes only carry the id. Updates and deletes also carry the due date the bill had
+// before the write, for caches kept per date.
+public final class BillChange {
+    public static final int INSERTED = 0;
+    public static final int UPDATED = 1;
+    public static final int DELETED = 2;
+
+    // previousDueEpochDay of an insert, or of a change that did not say
+    public static final long UNKNOWN_DUE_DATE = Long.MIN_VALUE;
+
+    public interface Listener {
+        // Called on the thread that made the write, right after it was committed
+        void onBillChanged(BillChange change);
+    }
+
+    public final int type;
+    public final long billId;
+    public final Bill bill; // null for DELETED
+    public final long previousDueEpochDay; // UPDATED and DELETED, else UNKNOWN_DUE_DATE
+    // Value of BillDatabaseHelper.getChangeVersion() once this change was applied
+    public final long version;
+
+    BillChange(int type, long billId, Bill bill, long version) {
+        this(type, billId, bill, UNKNOWN_DUE_DATE, version);
+    }
+
+    BillChange(int type, long billId, Bill bill, long previousDueEpochDay, long version) {
+        this.type = type;
+        this.billId = billId;
+        this.bill = bill;
+        this.previousDueEpochDay = previousDueEpochDay;
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "BillChange{type=" + type + ", billId=" + billId + ", version=" + version + "}";
+    }
+}
@@ -5,50 +5,119 @@ package com.example.rappeldesfactures;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class BillDatabaseHelper extends SQLiteOpenHelper {
     // Database Info
     private static final String DATABASE_NAME = "bills.db";
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 11;
 
     // Table Names
     public static final String TABLE_BILLS = "bills";
+    public static final String TABLE_MONTHLY_SUMMARY = "monthly_summary";
+    public static final String TABLE_SCHEDULED_REMINDERS = "scheduled_reminders";
+    public static final String TABLE_BILL_SERIES = "bill_series";
+    public static final String TABLE_BILLS_SEARCH = "bills_search"; // FTS4 index of the names
+
+    // Occurrences of recurring series are added this many days ahead of their due date,
+    // more than the longest reminder offset so that every reminder finds its bill
+    public static final int SERIES_HORIZON_DAYS = 45;
 
     // Bill Table Columns
     public static final String COLUMN_ID = "_id";
     public static final String COLUMN_NAME = "name";
-    public static final String COLUMN_AMOUNT = "amount";
+    public static final String COLUMN_NAME_KEY = "name_key"; // case-folded name, the name sort key
+    public static final String COLUMN_AMOUNT = "amount"; // whole centimes
     public static final String COLUMN_DUE_DATE = "due_date";
     public static final String COLUMN_IS_PAID = "is_paid";
     public static final String COLUMN_RECURRENCE_TYPE = "recurrence_type";
     public static final String COLUMN_RECURRENCE_INTERVAL = "recurrence_interval";
+    public static final String COLUMN_REMINDER_OFFSETS = "reminder_offsets"; // see ReminderTimes
+    public static final String COLUMN_REMINDER_MINUTE = "reminder_minute"; // minutes after midnight
+    public static final String COLUMN_SERIES_ID = "series_id"; // NULL for a one-off bill
+
+    // Bill Series Table Columns (plus the bill columns of the rule: name, amount,
+    // recurrence and reminder plan)
+    public static final String COLUMN_ANCHOR_DUE_DATE = "anchor_due_date"; // first occurrence
+    public static final String COLUMN_NEXT_DUE_DATE = "next_due_date"; // first not yet added
+
+    // Monthly Summary Table Columns (amounts in whole centimes)
+    public static final String COLUMN_MONTH_START = "month_start"; // epoch day of the 1st
+    public static final String COLUMN_UNPAID_COUNT = "unpaid_count";
+    public static final String COLUMN_UNPAID_TOTAL = "unpaid_total";
+    public static final String COLUMN_PAID_TOTAL = "paid_total";
+
+    // Scheduled Reminders Table Columns: one row per reminder of a bill for a due date
+    // and an offset of its reminder plan
+    public static final String COLUMN_BILL_ID = "bill_id";
+    public static final String COLUMN_REMINDER_DUE_DATE = "due_date"; // the due date it reminds of
+    public static final String COLUMN_OFFSET_DAYS = "offset_days"; // days before the due date
+    public static final String COLUMN_FIRE_AT = "fire_at"; // wall-clock millis
+    public static final String COLUMN_STATE = "state";
+
+    // Reminder states
+    public static final int REMINDER_PENDING = 0;
+    public static final int REMINDER_FIRED = 1;
+
+    // Trigger Names
+    private static final String TRIGGER_SUMMARY_INSERT = "trg_bills_summary_insert";
+    private static final String TRIGGER_SUMMARY_UPDATE = "trg_bills_summary_update";
+    private static final String TRIGGER_SUMMARY_DELETE = "trg_bills_summary_delete";
+    private static final String TRIGGER_SEARCH_INSERT = "trg_bills_search_insert";
+    private static final String TRIGGER_SEARCH_BEFORE_UPDATE = "trg_bills_search_before_update";
+    private static final String TRIGGER_SEARCH_AFTER_UPDATE = "trg_bills_search_after_update";
+    private static final String TRIGGER_SEARCH_DELETE = "trg_bills_search_delete";
+
+    // Index Names
+    private static final String INDEX_BILLS_PAID_DUE_DATE = "idx_bills_paid_due_date";
+    private static final String INDEX_BILLS_DUE_DATE = "idx_bills_due_date";
+    private static final String INDEX_BILLS_AMOUNT = "idx_bills_amount";
+    private static final String INDEX_BILLS_NAME_KEY = "idx_bills_name_key";
+    private static final String INDEX_REMINDERS_STATE_FIRE_AT = "idx_reminders_state_fire_at";
+    private static final String INDEX_BILLS_SERIES = "idx_bills_series";
+
+    // Julian day of 1970-01-01, used to convert the old "yyyy-MM-dd" text dates
+    private static final String JULIAN_DAY_EPOCH = "2440587.5";
+
+    // Every committed write is published to these listeners, in order (see BillChange)
+    private final List<BillChange.Listener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Object changeLock = new Object(); // not 'this', which SQLiteOpenHelper locks
+    private long changeVersion;
+
+    // Use BillReminderApplication.getDatabaseHelper() instead: the helper keeps its
+    // connection open for the whole process, so there must only be one instance.
+    BillDatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
 
-    public BillDatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Visible for benchmarks and tests that need a throwaway database file
+    BillDatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // Readers (list screen, notification checks) no longer wait for the writer
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        String CREATE_BILLS_TABLE = "CREATE TABLE " + TABLE_BILLS +
-                "(" +
-                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
-                COLUMN_NAME + " TEXT NOT NULL," +
-                COLUMN_AMOUNT + " REAL NOT NULL," +
-                COLUMN_DUE_DATE + " TEXT NOT NULL," +
-                COLUMN_IS_PAID + " INTEGER NOT NULL," +
-                COLUMN_RECURRENCE_TYPE + " INTEGER NOT NULL DEFAULT 0," +
-                COLUMN_RECURRENCE_INTERVAL + " INTEGER NOT NULL DEFAULT 1" +
-                ")";
-
-        db.execSQL(CREATE_BILLS_TABLE);
+        db.execSQL(createBillsTableSql(TABLE_BILLS));
+        createIndexes(db);
+        createMonthlySummary(db);
+        createScheduledReminders(db);
+        createBillSeries(db);
+        createBillsSearch(db);
     }
 
     @Override
@@ -60,69 +129,519 @@ public class BillDatabaseHelper extends SQLiteOpenHelper {
             db.execSQL("ALTER TABLE " + TABLE_BILLS + " ADD COLUMN " + 
                       COLUMN_RECURRENCE_INTERVAL + " INTEGER NOT NULL DEFAULT 1");
         }
+        if (oldVersion < 4) {
+            // v3 moved due dates from "yyyy-MM-dd" text to integer epoch days and v4 moved
+            // amounts from REAL to integer centimes. SQLite cannot change a column type in
+            // place, so the table is rebuilt once and the rows copied with converted values.
+            // Unparseable dates fall back to today, as Bill.setDueDate() does.
+            String dueDateExpr = oldVersion < 3
+                    ? "COALESCE(CAST(julianday(" + COLUMN_DUE_DATE + ") - " + JULIAN_DAY_EPOCH + " AS INTEGER), " +
+                      "CAST(julianday('now', 'localtime') - " + JULIAN_DAY_EPOCH + " AS INTEGER))"
+                    : COLUMN_DUE_DATE;
+            String amountExpr = "CAST(ROUND(" + COLUMN_AMOUNT + " * 100) AS INTEGER)";
+            rebuildBillsTable(db, amountExpr, dueDateExpr);
+        }
+        if (oldVersion >= 4 && oldVersion < 6) {
+            // v6 sorts by name in SQL (rebuildBillsTable already added the column)
+            db.execSQL("ALTER TABLE " + TABLE_BILLS + " ADD COLUMN " +
+                      COLUMN_NAME_KEY + " TEXT NOT NULL DEFAULT ''");
+        }
+        if (oldVersion < 6) {
+            fillNameKeys(db);
+            // Indexes for the keyset-paginated list in every sort order (v5 and v6)
+            createIndexes(db);
+        }
+        if (oldVersion < 7) {
+            createMonthlySummary(db);
+        }
+        if (oldVersion < 8) {
+            createScheduledReminders(db);
+            registerExistingReminders(db);
+        } else if (oldVersion < 9) {
+            // v9 registers one reminder per offset of the bill's plan
+            rebuildScheduledReminders(db);
+        }
+        if (oldVersion >= 4 && oldVersion < 9) {
+            // Reminder plans (rebuildBillsTable already added the columns); every
+            // existing bill keeps the default plan
+            db.execSQL("ALTER TABLE " + TABLE_BILLS + " ADD COLUMN " +
+                      COLUMN_REMINDER_OFFSETS + " INTEGER NOT NULL DEFAULT " + ReminderTimes.DEFAULT_OFFSETS);
+            db.execSQL("ALTER TABLE " + TABLE_BILLS + " ADD COLUMN " +
+                      COLUMN_REMINDER_MINUTE + " INTEGER NOT NULL DEFAULT " + ReminderTimes.DEFAULT_MINUTE_OF_DAY);
+        }
+        if (oldVersion >= 4 && oldVersion < 10) {
+            // Occurrences of recurring series (rebuildBillsTable already added the column)
+            db.execSQL("ALTER TABLE " + TABLE_BILLS + " ADD COLUMN " + COLUMN_SERIES_ID + " INTEGER");
+        }
+        if (oldVersion < 10) {
+            createBillSeries(db);
+            convertRecurringBills(db);
+        }
+        if (oldVersion < 11) {
+            createBillsSearch(db);
+        }
+    }
+
+    // Recreate the bills table with the current schema, copying every row through
+    // the given expressions for the amount and due date columns
+    private static void rebuildBillsTable(SQLiteDatabase db, String amountExpr, String dueDateExpr) {
+        String tempTable = TABLE_BILLS + "_new";
+        db.execSQL(createBillsTableSql(tempTable));
+        db.execSQL("INSERT INTO " + tempTable + " (" +
+                COLUMN_ID + ", " + COLUMN_NAME + ", " + COLUMN_AMOUNT + ", " +
+                COLUMN_DUE_DATE + ", " + COLUMN_IS_PAID + ", " +
+                COLUMN_RECURRENCE_TYPE + ", " + COLUMN_RECURRENCE_INTERVAL + ") " +
+                "SELECT " + COLUMN_ID + ", " + COLUMN_NAME + ", " + amountExpr + ", " +
+                dueDateExpr + ", " + COLUMN_IS_PAID + ", " +
+                COLUMN_RECURRENCE_TYPE + ", " + COLUMN_RECURRENCE_INTERVAL +
+                " FROM " + TABLE_BILLS);
+        db.execSQL("DROP TABLE " + TABLE_BILLS);
+        db.execSQL("ALTER TABLE " + tempTable + " RENAME TO " + TABLE_BILLS);
+        createIndexes(db);
+    }
+
+    // The name key is computed in Java (BillSortIndex.foldCase) so that SQL and the
+    // in-memory sort agree; SQLite's NOCASE only folds ASCII
+    private static void fillNameKeys(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_NAME + " FROM " + TABLE_BILLS, null);
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.put(COLUMN_NAME_KEY, BillSortIndex.foldCase(cursor.getString(1)));
+                db.update(TABLE_BILLS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(cursor.getLong(0))});
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String createBillsTableSql(String tableName) {
+        return "CREATE TABLE " + tableName +
+                "(" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_NAME + " TEXT NOT NULL," +
+                COLUMN_AMOUNT + " INTEGER NOT NULL," +
+                COLUMN_DUE_DATE + " INTEGER NOT NULL," +
+                COLUMN_IS_PAID + " INTEGER NOT NULL," +
+                COLUMN_RECURRENCE_TYPE + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_RECURRENCE_INTERVAL + " INTEGER NOT NULL DEFAULT 1," +
+                COLUMN_NAME_KEY + " TEXT NOT NULL DEFAULT ''," +
+                COLUMN_REMINDER_OFFSETS + " INTEGER NOT NULL DEFAULT " + ReminderTimes.DEFAULT_OFFSETS + "," +
+                COLUMN_REMINDER_MINUTE + " INTEGER NOT NULL DEFAULT " + ReminderTimes.DEFAULT_MINUTE_OF_DAY + "," +
+                COLUMN_SERIES_ID + " INTEGER" +
+                ")";
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        // Serves the "unpaid bills due between X and Y" range scans
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BILLS_PAID_DUE_DATE + " ON " + TABLE_BILLS +
+                "(" + COLUMN_IS_PAID + ", " + COLUMN_DUE_DATE + ")");
+        // Serves the paged list ordered by (due_date, _id): the rowid is implicitly
+        // the last column of every SQLite index, so the tie-breaker is covered too
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BILLS_DUE_DATE + " ON " + TABLE_BILLS +
+                "(" + COLUMN_DUE_DATE + ")");
+        // Same for the amount and name sort orders (see orderByClause); the status order
+        // is served by the (is_paid, due_date) index above
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BILLS_AMOUNT + " ON " + TABLE_BILLS +
+                "(" + COLUMN_AMOUNT + " DESC, " + COLUMN_DUE_DATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BILLS_NAME_KEY + " ON " + TABLE_BILLS +
+                "(" + COLUMN_NAME_KEY + ", " + COLUMN_DUE_DATE + ")");
+    }
+
+    // Per-month unpaid count, unpaid total and paid total of the bills, kept current by
+    // triggers on the bills table, so the header figures and month trends are lookups in
+    // a table of a few rows per year instead of scans of every bill. Filled once from the
+    // existing bills. Dropping the bills table (rebuildBillsTable) drops the triggers.
+    private static void createMonthlySummary(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MONTHLY_SUMMARY +
+                "(" +
+                COLUMN_MONTH_START + " INTEGER PRIMARY KEY," +
+                COLUMN_UNPAID_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_UNPAID_TOTAL + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_PAID_TOTAL + " INTEGER NOT NULL DEFAULT 0" +
+                ")");
+        db.execSQL("DELETE FROM " + TABLE_MONTHLY_SUMMARY);
+        db.execSQL("INSERT INTO " + TABLE_MONTHLY_SUMMARY + " SELECT " +
+                monthStartSql(COLUMN_DUE_DATE) + " AS m, " +
+                "SUM(" + COLUMN_IS_PAID + " = 0), " +
+                "SUM(CASE WHEN " + COLUMN_IS_PAID + " = 0 THEN " + COLUMN_AMOUNT + " ELSE 0 END), " +
+                "SUM(CASE WHEN " + COLUMN_IS_PAID + " = 0 THEN 0 ELSE " + COLUMN_AMOUNT + " END)" +
+                " FROM " + TABLE_BILLS + " GROUP BY m");
+
+        // No UPSERT before SQLite 3.24: make sure the month row exists, then add to it
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_INSERT +
+                " AFTER INSERT ON " + TABLE_BILLS + " BEGIN " +
+                addToMonthlySummarySql("NEW", "+") +
+                " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_UPDATE +
+                " AFTER UPDATE OF " + COLUMN_AMOUNT + ", " + COLUMN_DUE_DATE + ", " + COLUMN_IS_PAID +
+                " ON " + TABLE_BILLS + " BEGIN " +
+                addToMonthlySummarySql("OLD", "-") +
+                addToMonthlySummarySql("NEW", "+") +
+                " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_DELETE +
+                " AFTER DELETE ON " + TABLE_BILLS + " BEGIN " +
+                addToMonthlySummarySql("OLD", "-") +
+                " END");
+    }
+
+    // What ReminderScheduler has scheduled and sent, so that rescheduling only touches
+    // the reminders of bills that changed and a reboot only re-arms the next alarm
+    private static void createScheduledReminders(SQLiteDatabase db) {
+        db.execSQL(createScheduledRemindersTableSql(TABLE_SCHEDULED_REMINDERS));
+        createReminderIndexes(db);
+    }
+
+    private static String createScheduledRemindersTableSql(String tableName) {
+        return "CREATE TABLE IF NOT EXISTS " + tableName +
+                "(" +
+                COLUMN_BILL_ID + " INTEGER NOT NULL," +
+                COLUMN_REMINDER_DUE_DATE + " INTEGER NOT NULL," +
+                COLUMN_OFFSET_DAYS + " INTEGER NOT NULL," +
+                COLUMN_FIRE_AT + " INTEGER NOT NULL," +
+                COLUMN_STATE + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + COLUMN_BILL_ID + ", " + COLUMN_REMINDER_DUE_DATE + ", " + COLUMN_OFFSET_DAYS + ")" +
+                ")";
+    }
+
+    private static void createReminderIndexes(SQLiteDatabase db) {
+        // Serves "next pending reminder" and "pending reminders due by T"
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_REMINDERS_STATE_FIRE_AT + " ON " + TABLE_SCHEDULED_REMINDERS +
+                "(" + COLUMN_STATE + ", " + COLUMN_FIRE_AT + ")");
+    }
+
+    // v8 rows were all the default plan's reminder, the day before
+    private static void rebuildScheduledReminders(SQLiteDatabase db) {
+        String tempTable = TABLE_SCHEDULED_REMINDERS + "_new";
+        db.execSQL(createScheduledRemindersTableSql(tempTable));
+        db.execSQL("INSERT INTO " + tempTable + " SELECT " +
+                COLUMN_BILL_ID + ", " + COLUMN_REMINDER_DUE_DATE + ", 1, " + COLUMN_FIRE_AT + ", " + COLUMN_STATE +
+                " FROM " + TABLE_SCHEDULED_REMINDERS);
+        db.execSQL("DROP TABLE " + TABLE_SCHEDULED_REMINDERS);
+        db.execSQL("ALTER TABLE " + tempTable + " RENAME TO " + TABLE_SCHEDULED_REMINDERS);
+        createReminderIndexes(db);
+    }
+
+    // Recurring bills: the rule is kept once per series, and its occurrences are added
+    // to the bills table only up to SERIES_HORIZON_DAYS ahead (materializeSeries), so
+    // the series goes on whether or not the previous occurrence was ticked as paid.
+    private static void createBillSeries(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_BILL_SERIES +
+                "(" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_NAME + " TEXT NOT NULL," +
+                COLUMN_AMOUNT + " INTEGER NOT NULL," +
+                COLUMN_RECURRENCE_TYPE + " INTEGER NOT NULL," +
+                COLUMN_RECURRENCE_INTERVAL + " INTEGER NOT NULL," +
+                COLUMN_REMINDER_OFFSETS + " INTEGER NOT NULL," +
+                COLUMN_REMINDER_MINUTE + " INTEGER NOT NULL," +
+                COLUMN_ANCHOR_DUE_DATE + " INTEGER NOT NULL," +
+                COLUMN_NEXT_DUE_DATE + " INTEGER NOT NULL" +
+                ")");
+        // Serves the occurrences of a series, latest first
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BILLS_SERIES + " ON " + TABLE_BILLS +
+                "(" + COLUMN_SERIES_ID + ", " + COLUMN_DUE_DATE + ")");
+    }
+
+    // Full-text index of the bill names for the search box. It is an external content
+    // FTS4 table: it only holds the index and reads the names from the bills table, and
+    // triggers keep it in step with every insert, rename and delete. The unicode61
+    // tokenizer folds case and accents, so "electricite" finds "Électricité". Filled
+    // once from the existing bills.
+    private static void createBillsSearch(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_BILLS_SEARCH + " USING fts4(" +
+                "content=\"" + TABLE_BILLS + "\", " + COLUMN_NAME + ", " +
+                "tokenize=unicode61 \"remove_diacritics=1\")");
+        db.execSQL("INSERT INTO " + TABLE_BILLS_SEARCH + "(" + TABLE_BILLS_SEARCH + ") VALUES('rebuild')");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SEARCH_INSERT +
+                " AFTER INSERT ON " + TABLE_BILLS + " BEGIN " +
+                "INSERT INTO " + TABLE_BILLS_SEARCH + "(docid, " + COLUMN_NAME + ") VALUES (NEW." + COLUMN_ID +
+                ", NEW." + COLUMN_NAME + ");" +
+                " END");
+        // The old name has to leave the index before the row changes, since the index
+        // reads it from the bills table
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SEARCH_BEFORE_UPDATE +
+                " BEFORE UPDATE OF " + COLUMN_NAME + " ON " + TABLE_BILLS + " BEGIN " +
+                "DELETE FROM " + TABLE_BILLS_SEARCH + " WHERE docid = OLD." + COLUMN_ID + ";" +
+                " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SEARCH_AFTER_UPDATE +
+                " AFTER UPDATE OF " + COLUMN_NAME + " ON " + TABLE_BILLS + " BEGIN " +
+                "INSERT INTO " + TABLE_BILLS_SEARCH + "(docid, " + COLUMN_NAME + ") VALUES (NEW." + COLUMN_ID +
+                ", NEW." + COLUMN_NAME + ");" +
+                " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SEARCH_DELETE +
+                " BEFORE DELETE ON " + TABLE_BILLS + " BEGIN " +
+                "DELETE FROM " + TABLE_BILLS_SEARCH + " WHERE docid = OLD." + COLUMN_ID + ";" +
+                " END");
+    }
+
+    // Before v10 a recurring bill was copied when it was paid, so each recurring bill
+    // was a chain of paid copies ending with one unpaid copy. Copies of one chain share
+    // its name, its rule and its phase (chainPhaseSql); each chain still going, the ones
+    // with an unpaid copy, becomes a series continuing after its latest copy (SQLite
+    // takes the bare columns from the MAX row). Two "Loyer" bills due on different days
+    // of the month remain two series.
+    private static void convertRecurringBills(SQLiteDatabase db) {
+        String phase = chainPhaseSql();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_NAME + ", " + COLUMN_AMOUNT + ", " +
+                COLUMN_RECURRENCE_TYPE + ", " + COLUMN_RECURRENCE_INTERVAL + ", " +
+                COLUMN_REMINDER_OFFSETS + ", " + COLUMN_REMINDER_MINUTE + ", MAX(" + COLUMN_DUE_DATE + "), " +
+                phase + " AS phase" +
+                " FROM " + TABLE_BILLS + " WHERE " + COLUMN_RECURRENCE_TYPE + " != " + Bill.RECURRENCE_NONE +
+                " GROUP BY " + COLUMN_NAME + ", " + COLUMN_RECURRENCE_TYPE + ", " + COLUMN_RECURRENCE_INTERVAL +
+                ", phase HAVING SUM(" + COLUMN_IS_PAID + " = 0) > 0", null);
+        try {
+            while (cursor.moveToNext()) {
+                Bill latest = new Bill();
+                latest.setName(cursor.getString(0));
+                latest.setAmount(Money.ofCents(cursor.getLong(1)));
+                latest.setRecurrenceType(cursor.getInt(2));
+                latest.setRecurrenceInterval(cursor.getInt(3));
+                latest.setReminderOffsets(cursor.getInt(4));
+                latest.setReminderMinuteOfDay(cursor.getInt(5));
+                latest.setDueEpochDay(cursor.getLong(6));
+                long seriesId = insertSeries(db, latest);
+
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_SERIES_ID, seriesId);
+                db.update(TABLE_BILLS, values, COLUMN_NAME + " = ? AND " + COLUMN_RECURRENCE_TYPE + " = ? AND " +
+                        COLUMN_RECURRENCE_INTERVAL + " = ? AND " + phase + " = ?", new String[]{latest.getName(),
+                        String.valueOf(latest.getRecurrenceType()), String.valueOf(latest.getRecurrenceInterval()),
+                        cursor.getString(7)});
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Where a due date falls in its rule's cycle, as text: the day of the month for a
+    // monthly rule, the month and day for a yearly one, the weekday for a weekly one
+    private static String chainPhaseSql() {
+        String date = COLUMN_DUE_DATE + " * 86400, 'unixepoch'";
+        return "(CASE " + COLUMN_RECURRENCE_TYPE +
+                " WHEN " + Bill.RECURRENCE_MONTHLY + " THEN strftime('%d', " + date + ")" +
+                " WHEN " + Bill.RECURRENCE_YEARLY + " THEN strftime('%m-%d', " + date + ")" +
+                " WHEN " + Bill.RECURRENCE_WEEKLY + " THEN CAST(" + COLUMN_DUE_DATE + " % 7 AS TEXT)" +
+                " ELSE '' END)";
     }
 
-    // Insert a bill into the database
+    // Register the reminders of the unpaid bills still due, which all have the default
+    // plan; those whose time has passed count as sent, as they were under the previous
+    // scheduler
+    private static void registerExistingReminders(SQLiteDatabase db) {
+        long now = System.currentTimeMillis();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_DUE_DATE + " FROM " + TABLE_BILLS +
+                " WHERE " + COLUMN_IS_PAID + " = 0 AND " + COLUMN_DUE_DATE + " >= ?",
+                new String[]{String.valueOf(BillDates.epochDayOf(now))});
+        try {
+            while (cursor.moveToNext()) {
+                long fireAt = ReminderTimes.reminderTime(cursor.getLong(1), 1, ReminderTimes.DEFAULT_MINUTE_OF_DAY);
+                insertReminder(db, cursor.getLong(0), cursor.getLong(1), 1, fireAt,
+                        fireAt > now ? REMINDER_PENDING : REMINDER_FIRED);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Trigger statements adding ("+") or subtracting ("-") the NEW or OLD row to its month
+    private static String addToMonthlySummarySql(String row, String sign) {
+        String month = monthStartSql(row + "." + COLUMN_DUE_DATE);
+        String unpaid = "(" + row + "." + COLUMN_IS_PAID + " = 0)";
+        return "INSERT OR IGNORE INTO " + TABLE_MONTHLY_SUMMARY + " (" + COLUMN_MONTH_START + ") VALUES (" + month + "); " +
+                "UPDATE " + TABLE_MONTHLY_SUMMARY + " SET " +
+                COLUMN_UNPAID_COUNT + " = " + COLUMN_UNPAID_COUNT + " " + sign + " " + unpaid + ", " +
+                COLUMN_UNPAID_TOTAL + " = " + COLUMN_UNPAID_TOTAL + " " + sign + " " +
+                "CASE WHEN " + unpaid + " THEN " + row + "." + COLUMN_AMOUNT + " ELSE 0 END, " +
+                COLUMN_PAID_TOTAL + " = " + COLUMN_PAID_TOTAL + " " + sign + " " +
+                "CASE WHEN " + unpaid + " THEN 0 ELSE " + row + "." + COLUMN_AMOUNT + " END" +
+                " WHERE " + COLUMN_MONTH_START + " = " + month + "; ";
+    }
+
+    // Epoch day of the first day of the month of an epoch day expression, the same
+    // value as BillDates.startOfMonth()
+    private static String monthStartSql(String epochDay) {
+        return "(CAST(strftime('%s', " + epochDay + " * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400)";
+    }
+
+    // Insert a bill into the database. A new recurring bill starts a series, and the
+    // occurrences that follow it within the horizon are added in the same transaction.
     public long addBill(Bill bill) {
+        if (bill.isRecurring() && bill.getSeriesId() == 0) {
+            return addRecurringBill(bill);
+        }
+        long insertId = insertBill(getWritableDatabase(), bill);
+        if (insertId > 0) {
+            Bill inserted = new Bill(bill);
+            inserted.setId(insertId);
+            publishChange(BillChange.INSERTED, insertId, inserted);
+        }
+        return insertId;
+    }
+
+    private long addRecurringBill(Bill bill) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<Bill> inserted = new ArrayList<>();
+        long insertId = -1;
+        db.beginTransaction();
+        try {
+            Bill first = new Bill(bill);
+            first.setSeriesId(insertSeries(db, bill));
+            insertId = insertBill(db, first);
+            if (insertId > 0) {
+                first.setId(insertId);
+                inserted.add(first);
+                addOccurrences(db, first.getSeriesId(), seriesHorizon(), inserted);
+                db.setTransactionSuccessful();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            insertId = -1;
+            inserted.clear();
+        } finally {
+            db.endTransaction();
+        }
+        publishInserts(inserted);
+        return insertId;
+    }
+
+    private static long insertBill(SQLiteDatabase db, Bill bill) {
+        return db.insert(TABLE_BILLS, null, billValues(bill));
+    }
+
+    private static ContentValues billValues(Bill bill) {
         ContentValues values = new ContentValues();
         values.put(COLUMN_NAME, bill.getName());
-        values.put(COLUMN_AMOUNT, bill.getAmount());
-        values.put(COLUMN_DUE_DATE, bill.getDueDate());
+        values.put(COLUMN_NAME_KEY, BillSortIndex.foldCase(bill.getName()));
+        values.put(COLUMN_AMOUNT, bill.getAmount().getCents());
+        values.put(COLUMN_DUE_DATE, bill.getDueEpochDay());
         values.put(COLUMN_IS_PAID, bill.isPaid() ? 1 : 0);
         values.put(COLUMN_RECURRENCE_TYPE, bill.getRecurrenceType());
         values.put(COLUMN_RECURRENCE_INTERVAL, bill.getRecurrenceInterval());
-
-        SQLiteDatabase db = this.getWritableDatabase();
-        long insertId = db.insert(TABLE_BILLS, null, values);
-        db.close();
-        return insertId;
+        values.put(COLUMN_REMINDER_OFFSETS, bill.getReminderOffsets());
+        values.put(COLUMN_REMINDER_MINUTE, bill.getReminderMinuteOfDay());
+        if (bill.getSeriesId() != 0) {
+            values.put(COLUMN_SERIES_ID, bill.getSeriesId());
+        } else {
+            values.putNull(COLUMN_SERIES_ID);
+        }
+        return values;
     }
 
-    // Get all bills from the database
+    // Get all bills from the database. Prefer getBillsPage() for the list screen,
+    // this loads every row at once.
     public List<Bill> getAllBills() {
-        List<Bill> bills = new ArrayList<>();
-
         String BILLS_SELECT_QUERY = "SELECT * FROM " + TABLE_BILLS + 
-                                   " ORDER BY " + COLUMN_DUE_DATE + " ASC";
+                                   " ORDER BY " + COLUMN_DUE_DATE + " ASC, " + COLUMN_ID + " ASC";
 
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery(BILLS_SELECT_QUERY, null);
-        try {
-            if (cursor.moveToFirst()) {
-                do {
-                    try {
-                        Bill bill = new Bill();
-                        int idIdx = cursor.getColumnIndexOrThrow(COLUMN_ID);
-                        int nameIdx = cursor.getColumnIndexOrThrow(COLUMN_NAME);
-                        int amountIdx = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT);
-                        int dueDateIdx = cursor.getColumnIndexOrThrow(COLUMN_DUE_DATE);
-                        int isPaidIdx = cursor.getColumnIndexOrThrow(COLUMN_IS_PAID);
-                        int recurrenceTypeIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_TYPE);
-                        int recurrenceIntervalIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_INTERVAL);
-
-                        bill.setId(cursor.getLong(idIdx));
-                        bill.setName(cursor.getString(nameIdx));
-                        bill.setAmount(cursor.getDouble(amountIdx));
-                        bill.setDueDate(cursor.getString(dueDateIdx));
-                        bill.setPaid(cursor.getInt(isPaidIdx) == 1);
-                        bill.setRecurrenceType(cursor.getInt(recurrenceTypeIdx));
-                        bill.setRecurrenceInterval(cursor.getInt(recurrenceIntervalIdx));
-
-                        bills.add(bill);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                } while (cursor.moveToNext());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
-            }
+        return queryBills(BILLS_SELECT_QUERY, null);
+    }
+
+    // Get the page of bills that follows 'after' in (due_date, id) order, or the first
+    // page when 'after' is null. Keyset pagination: each page is an index seek from the
+    // last row of the previous one, so its cost does not grow with the page number.
+    public List<Bill> getBillsPage(Bill after, int pageSize) {
+        if (after == null) {
+            return queryBills("SELECT * FROM " + TABLE_BILLS +
+                    " ORDER BY " + COLUMN_DUE_DATE + " ASC, " + COLUMN_ID + " ASC" +
+                    " LIMIT " + pageSize, null);
         }
 
-        return bills;
+        String dueDate = String.valueOf(after.getDueEpochDay());
+        return queryBills("SELECT * FROM " + TABLE_BILLS +
+                // Written so the leading "due_date >= ?" bound is a seek, not a filtered scan
+                " WHERE " + COLUMN_DUE_DATE + " >= ? AND (" + COLUMN_DUE_DATE + " > ? OR " + COLUMN_ID + " > ?)" +
+                " ORDER BY " + COLUMN_DUE_DATE + " ASC, " + COLUMN_ID + " ASC" +
+                " LIMIT " + pageSize,
+                new String[]{dueDate, dueDate, String.valueOf(after.getId())});
+    }
+
+    // Get the page of bills that follows 'after' (or the first page) in the order and
+    // with the filter of the given query. Sorting and filtering happen in SQLite, so only
+    // the rows shown are read; every sort order has an index to walk, and pages are
+    // keyset seeks as in getBillsPage(Bill, int).
+    public List<Bill> getBillsPage(BillQuery query, Bill after, int pageSize) {
+        List<String> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (!query.filter.isAll()) {
+            conditions.add(query.filter.toSql(predicateConditions(query.todayEpochDay)));
+        }
+        if (after != null) {
+            conditions.add(keysetCondition(query.sortOption, after, args));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(TABLE_BILLS);
+        for (int i = 0; i < conditions.size(); i++) {
+            sql.append(i == 0 ? " WHERE " : " AND ").append(conditions.get(i));
+        }
+        sql.append(" ORDER BY ").append(orderByClause(query.sortOption))
+                .append(" LIMIT ").append(pageSize);
+        return queryBills(sql.toString(), args.toArray(new String[0]));
+    }
+
+    // SQL for each BillFilterIndex predicate, same definitions as the index. Day bounds
+    // are inlined: they are plain numbers and let the planner see the ranges.
+    private static String[] predicateConditions(long todayEpochDay) {
+        String[] conditions = new String[BillFilterIndex.PREDICATE_COUNT];
+        conditions[BillFilterIndex.UNPAID] = COLUMN_IS_PAID + " = 0";
+        conditions[BillFilterIndex.OVERDUE] = "(" + COLUMN_IS_PAID + " = 0 AND " + COLUMN_DUE_DATE + " < " + todayEpochDay + ")";
+        conditions[BillFilterIndex.DUE_THIS_MONTH] = COLUMN_DUE_DATE + " BETWEEN " + BillDates.startOfMonth(todayEpochDay) +
+                " AND " + BillDates.endOfMonth(todayEpochDay);
+        conditions[BillFilterIndex.RECURRING] = COLUMN_RECURRENCE_TYPE + " <> " + Bill.RECURRENCE_NONE;
+        return conditions;
+    }
+
+    // Same order as BillSortIndex.order(). Every order ends with (due_date, _id), the
+    // rowid being the implicit last column of each index. Statuses rank unpaid bills by
+    // due date (overdue, due today, due soon, upcoming) and put paid bills last, so the
+    // status order is (is_paid, due_date, _id): it does not depend on the day and the
+    // (is_paid, due_date) index serves it, where a CASE over the due date could not be
+    // indexed.
+    private static String orderByClause(int sortOption) {
+        String tail = COLUMN_DUE_DATE + " ASC, " + COLUMN_ID + " ASC";
+        switch (sortOption) {
+            case BillSortIndex.SORT_AMOUNT:
+                return COLUMN_AMOUNT + " DESC, " + tail;
+            case BillSortIndex.SORT_NAME:
+                return COLUMN_NAME_KEY + " ASC, " + tail;
+            case BillSortIndex.SORT_STATUS:
+                return COLUMN_IS_PAID + " ASC, " + tail;
+            default:
+                return tail;
+        }
+    }
+
+    // Rows strictly after 'after' in orderByClause(sortOption) order, written with a
+    // leading range on the first sort column so that it is an index seek. Row values
+    // ("(a, b) > (?, ?)") would be shorter but need SQLite 3.15, newer than API 24's.
+    private static String keysetCondition(int sortOption, Bill after, List<String> args) {
+        String dueDate = String.valueOf(after.getDueEpochDay());
+        String id = String.valueOf(after.getId());
+        String column;
+        String key;
+        boolean descending = false;
+        switch (sortOption) {
+            case BillSortIndex.SORT_AMOUNT:
+                column = COLUMN_AMOUNT;
+                key = String.valueOf(after.getAmount().getCents());
+                descending = true;
+                break;
+            case BillSortIndex.SORT_NAME:
+                column = COLUMN_NAME_KEY;
+                key = BillSortIndex.foldCase(after.getName());
+                break;
+            case BillSortIndex.SORT_STATUS:
+                column = COLUMN_IS_PAID;
+                key = after.isPaid() ? "1" : "0";
+                break;
+            default:
+                Collections.addAll(args, dueDate, dueDate, id);
+                return "(" + COLUMN_DUE_DATE + " >= ? AND (" + COLUMN_DUE_DATE + " > ? OR " + COLUMN_ID + " > ?))";
+        }
+        Collections.addAll(args, key, key, dueDate, dueDate, id);
+        return "(" + column + (descending ? " <= ?" : " >= ?") + " AND (" + column + (descending ? " < ?" : " > ?") +
+                " OR " + COLUMN_DUE_DATE + " > ? OR (" + COLUMN_DUE_DATE + " = ? AND " + COLUMN_ID + " > ?)))";
     }
 
     // Get a single bill by ID
@@ -137,8 +656,8 @@ public class BillDatabaseHelper extends SQLiteOpenHelper {
                 bill = new Bill();
                 bill.setId(cursor.getLong(cursor.getColumnIndex(COLUMN_ID)));
                 bill.setName(cursor.getString(cursor.getColumnIndex(COLUMN_NAME)));
-                bill.setAmount(cursor.getDouble(cursor.getColumnIndex(COLUMN_AMOUNT)));
-                bill.setDueDate(cursor.getString(cursor.getColumnIndex(COLUMN_DUE_DATE)));
+                bill.setAmount(Money.ofCents(cursor.getLong(cursor.getColumnIndex(COLUMN_AMOUNT))));
+                bill.setDueEpochDay(cursor.getLong(cursor.getColumnIndex(COLUMN_DUE_DATE)));
                 bill.setPaid(cursor.getInt(cursor.getColumnIndex(COLUMN_IS_PAID)) == 1);
                 
                 // Get recurrence info if available
@@ -151,96 +670,396 @@ public class BillDatabaseHelper extends SQLiteOpenHelper {
                 if (recurrenceIntervalIndex != -1) {
                     bill.setRecurrenceInterval(cursor.getInt(recurrenceIntervalIndex));
                 }
+
+                bill.setReminderOffsets(cursor.getInt(cursor.getColumnIndex(COLUMN_REMINDER_OFFSETS)));
+                bill.setReminderMinuteOfDay(cursor.getInt(cursor.getColumnIndex(COLUMN_REMINDER_MINUTE)));
+                bill.setSeriesId(cursor.getLong(cursor.getColumnIndex(COLUMN_SERIES_ID))); // 0 when NULL
             }
             cursor.close();
         }
-        db.close();
         return bill;
     }
 
-    // Update an existing bill
+    // Update an existing bill. Only the live occurrence of a series (unpaid, with no
+    // paid occurrence after it) speaks for the series: when its rule or reminder plan
+    // changed, the series is anchored on it again, the occurrences added after it are
+    // replaced by ones following the new rule, and making it one-off ends the series.
+    // Edits to an older occurrence, such as a paid one, stay on that bill. Making a
+    // one-off bill recurring starts a series.
     public int updateBill(Bill bill) {
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME, bill.getName());
-        values.put(COLUMN_AMOUNT, bill.getAmount());
-        values.put(COLUMN_DUE_DATE, bill.getDueDate());
-        values.put(COLUMN_IS_PAID, bill.isPaid() ? 1 : 0);
-        values.put(COLUMN_RECURRENCE_TYPE, bill.getRecurrenceType());
-        values.put(COLUMN_RECURRENCE_INTERVAL, bill.getRecurrenceInterval());
-
-        SQLiteDatabase db = this.getWritableDatabase();
-        int rowsUpdated = db.update(TABLE_BILLS, values, COLUMN_ID + " = ?",
-                new String[]{String.valueOf(bill.getId())});
-        db.close();
+        SQLiteDatabase db = getWritableDatabase();
+        Bill written = new Bill(bill);
+        int rowsUpdated = 0;
+        long previousDueEpochDay = BillChange.UNKNOWN_DUE_DATE;
+        List<Bill> deleted = new ArrayList<>(); // later occurrences replaced, with their due date
+        List<Bill> inserted = new ArrayList<>();
+        db.beginTransaction();
+        try {
+            String[] idArgs = {String.valueOf(bill.getId())};
+            // Throws when the bill no longer exists, which updates nothing
+            previousDueEpochDay = DatabaseUtils.longForQuery(db, "SELECT " + COLUMN_DUE_DATE +
+                    " FROM " + TABLE_BILLS + " WHERE " + COLUMN_ID + " = ?", idArgs);
+            long seriesId = bill.getSeriesId();
+            long replacedAfter = Math.min(previousDueEpochDay, bill.getDueEpochDay());
+            boolean replan = false;
+            if (seriesId != 0 && !isLiveOccurrence(db, bill.getId())) {
+                if (!bill.isRecurring()) {
+                    written.setSeriesId(0);
+                }
+            } else if (seriesId != 0 && !bill.isRecurring()) {
+                deleteLaterOccurrences(db, seriesId, bill.getId(), replacedAfter, deleted);
+                db.delete(TABLE_BILL_SERIES, COLUMN_ID + " = ?", new String[]{String.valueOf(seriesId)});
+                written.setSeriesId(0);
+            } else if (seriesId != 0 && hasRuleChanged(db, bill)) {
+                deleteLaterOccurrences(db, seriesId, bill.getId(), replacedAfter, deleted);
+                ContentValues seriesValues = seriesRuleValues(bill);
+                seriesValues.put(COLUMN_ANCHOR_DUE_DATE, bill.getDueEpochDay());
+                seriesValues.put(COLUMN_NEXT_DUE_DATE, bill.getNextDueEpochDay());
+                db.update(TABLE_BILL_SERIES, seriesValues, COLUMN_ID + " = ?", new String[]{String.valueOf(seriesId)});
+                replan = true;
+            } else if (seriesId == 0 && bill.isRecurring()) {
+                written.setSeriesId(insertSeries(db, bill));
+            }
+            rowsUpdated = db.update(TABLE_BILLS, billValues(written), COLUMN_ID + " = ?", idArgs);
+            if (rowsUpdated > 0) {
+                if (replan) {
+                    addOccurrences(db, seriesId, seriesHorizon(), inserted);
+                }
+                db.setTransactionSuccessful();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            rowsUpdated = 0;
+        } finally {
+            db.endTransaction();
+        }
+        if (rowsUpdated > 0) {
+            publishChange(BillChange.UPDATED, bill.getId(), written, previousDueEpochDay);
+            for (Bill occurrence : deleted) {
+                publishChange(BillChange.DELETED, occurrence.getId(), null, occurrence.getDueEpochDay());
+            }
+            publishInserts(inserted);
+        }
         return rowsUpdated;
     }
 
-    // Delete a bill
+    // Whether the stored bill is unpaid and no occurrence of its series after it is paid
+    private static boolean isLiveOccurrence(SQLiteDatabase db, long billId) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + TABLE_BILLS + " b" +
+                " WHERE b." + COLUMN_ID + " = ? AND b." + COLUMN_IS_PAID + " = 0" +
+                " AND NOT EXISTS (SELECT 1 FROM " + TABLE_BILLS + " l WHERE l." + COLUMN_SERIES_ID +
+                " = b." + COLUMN_SERIES_ID + " AND l." + COLUMN_DUE_DATE + " > b." + COLUMN_DUE_DATE +
+                " AND l." + COLUMN_IS_PAID + " = 1)", new String[]{String.valueOf(billId)}) > 0;
+    }
+
+    // Whether the bill's name, amount, recurrence or reminder plan differ from its series'
+    private static boolean hasRuleChanged(SQLiteDatabase db, Bill bill) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + TABLE_BILL_SERIES +
+                " WHERE " + COLUMN_ID + " = ? AND " + COLUMN_NAME + " = ? AND " + COLUMN_AMOUNT + " = ?" +
+                " AND " + COLUMN_RECURRENCE_TYPE + " = ? AND " + COLUMN_RECURRENCE_INTERVAL + " = ?" +
+                " AND " + COLUMN_REMINDER_OFFSETS + " = ? AND " + COLUMN_REMINDER_MINUTE + " = ?",
+                new String[]{String.valueOf(bill.getSeriesId()), bill.getName(),
+                        String.valueOf(bill.getAmount().getCents()), String.valueOf(bill.getRecurrenceType()),
+                        String.valueOf(bill.getRecurrenceInterval()), String.valueOf(bill.getReminderOffsets()),
+                        String.valueOf(bill.getReminderMinuteOfDay())}) == 0;
+    }
+
+    // Delete the unpaid occurrences of a series due after the given epoch day, other than
+    // the given bill, and collect them (id and due date) for the change events
+    private static void deleteLaterOccurrences(SQLiteDatabase db, long seriesId, long keptBillId,
+                                               long afterEpochDay, List<Bill> deleted) {
+        String selection = COLUMN_SERIES_ID + " = ? AND " + COLUMN_ID + " != ? AND " +
+                COLUMN_IS_PAID + " = 0 AND " + COLUMN_DUE_DATE + " > ?";
+        String[] args = {String.valueOf(seriesId), String.valueOf(keptBillId), String.valueOf(afterEpochDay)};
+        Cursor cursor = db.query(TABLE_BILLS, new String[]{COLUMN_ID, COLUMN_DUE_DATE}, selection, args,
+                null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                Bill occurrence = new Bill();
+                occurrence.setId(cursor.getLong(0));
+                occurrence.setDueEpochDay(cursor.getLong(1));
+                deleted.add(occurrence);
+            }
+        } finally {
+            cursor.close();
+        }
+        db.delete(TABLE_BILLS, selection, args);
+    }
+
+    // Delete a bill. Deleting the latest occurrence added for a series ends the series,
+    // as deleting the last copy of a recurring bill used to.
     public int deleteBill(long id) {
         SQLiteDatabase db = getWritableDatabase();
         int rowsDeleted = 0;
+        long dueEpochDay = BillChange.UNKNOWN_DUE_DATE;
         db.beginTransaction();
         try {
-            rowsDeleted = db.delete(TABLE_BILLS, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
+            String[] idArgs = {String.valueOf(id)};
+            Cursor cursor = db.query(TABLE_BILLS, new String[]{COLUMN_SERIES_ID, COLUMN_DUE_DATE},
+                    COLUMN_ID + " = ?", idArgs, null, null, null);
+            long seriesId = 0;
+            try {
+                if (cursor.moveToFirst()) {
+                    seriesId = cursor.getLong(0);
+                    dueEpochDay = cursor.getLong(1);
+                }
+            } finally {
+                cursor.close();
+            }
+            rowsDeleted = db.delete(TABLE_BILLS, COLUMN_ID + " = ?", idArgs);
+            if (rowsDeleted > 0 && seriesId != 0) {
+                db.execSQL("DELETE FROM " + TABLE_BILL_SERIES + " WHERE " + COLUMN_ID + " = ?" +
+                        " AND NOT EXISTS (SELECT 1 FROM " + TABLE_BILLS +
+                        " WHERE " + COLUMN_SERIES_ID + " = ? AND " + COLUMN_DUE_DATE + " > ?)",
+                        new Object[]{seriesId, seriesId, dueEpochDay});
+            }
             db.setTransactionSuccessful();
         } catch (Exception e) {
             e.printStackTrace();
+            rowsDeleted = 0;
         } finally {
             db.endTransaction();
         }
-        db.close();
+        if (rowsDeleted > 0) {
+            publishChange(BillChange.DELETED, id, null, dueEpochDay);
+        }
         return rowsDeleted;
     }
+
+    // Recurring series
+
+    // Add the occurrences of every series due up to the given epoch day. Cycles missed
+    // while the app did not run are all caught up here, in one transaction. Returns the
+    // number of bills added.
+    public int materializeSeries(long horizonEpochDay) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<Bill> inserted = new ArrayList<>();
+        db.beginTransaction();
+        try {
+            addOccurrences(db, 0, horizonEpochDay, inserted);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+            inserted.clear();
+        } finally {
+            db.endTransaction();
+        }
+        publishInserts(inserted);
+        return inserted.size();
+    }
+
+    // Earliest due date of an occurrence not added yet, or -1 if there is no series
+    public long getNextSeriesDueDay() {
+        SQLiteDatabase db = getReadableDatabase();
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COALESCE(MIN(" + COLUMN_NEXT_DUE_DATE + "), -1) FROM " + TABLE_BILL_SERIES, null);
+    }
+
+    // Last day of the materialization horizon, for today
+    public static long seriesHorizon() {
+        return BillDates.todayEpochDay() + SERIES_HORIZON_DAYS;
+    }
+
+    // Every series, for the forecast
+    public List<BillSeries> getAllSeries() {
+        return readSeries(getReadableDatabase(), null);
+    }
+
+    private static List<BillSeries> readSeries(SQLiteDatabase db, String selection) {
+        List<BillSeries> series = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_BILL_SERIES, null, selection, null, null, null, null);
+        try {
+            int idIdx = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int nameIdx = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            int amountIdx = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT);
+            int recurrenceTypeIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_TYPE);
+            int recurrenceIntervalIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_INTERVAL);
+            int reminderOffsetsIdx = cursor.getColumnIndexOrThrow(COLUMN_REMINDER_OFFSETS);
+            int reminderMinuteIdx = cursor.getColumnIndexOrThrow(COLUMN_REMINDER_MINUTE);
+            int anchorDueDateIdx = cursor.getColumnIndexOrThrow(COLUMN_ANCHOR_DUE_DATE);
+            int nextDueDateIdx = cursor.getColumnIndexOrThrow(COLUMN_NEXT_DUE_DATE);
+            while (cursor.moveToNext()) {
+                Bill first = new Bill();
+                first.setSeriesId(cursor.getLong(idIdx));
+                first.setName(cursor.getString(nameIdx));
+                first.setAmount(Money.ofCents(cursor.getLong(amountIdx)));
+                first.setRecurrenceType(cursor.getInt(recurrenceTypeIdx));
+                first.setRecurrenceInterval(cursor.getInt(recurrenceIntervalIdx));
+                first.setReminderOffsets(cursor.getInt(reminderOffsetsIdx));
+                first.setReminderMinuteOfDay(cursor.getInt(reminderMinuteIdx));
+                first.setDueEpochDay(cursor.getLong(anchorDueDateIdx));
+                series.add(new BillSeries(first, cursor.getLong(nextDueDateIdx)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return series;
+    }
+
+    // Insert the occurrences up to the horizon of one series (or of every series when
+    // seriesId is 0) and move their next due date past it. Dates are stepped from the
+    // series' anchor, so monthly series on the 29th-31st do not drift. The series are
+    // read first: the loop writes to the table it would otherwise be iterating.
+    private static void addOccurrences(SQLiteDatabase db, long seriesId, long horizonEpochDay, List<Bill> inserted) {
+        String selection = COLUMN_NEXT_DUE_DATE + " <= " + horizonEpochDay +
+                (seriesId != 0 ? " AND " + COLUMN_ID + " = " + seriesId : "");
+        ContentValues seriesValues = new ContentValues();
+        for (BillSeries series : readSeries(db, selection)) {
+            Bill first = series.first;
+            RecurrenceIterator dueDays = series.pendingOccurrences();
+            if (!dueDays.hasNext()) {
+                continue; // not a recurring rule
+            }
+            long due = dueDays.next();
+            while (due <= horizonEpochDay) {
+                Bill bill = new Bill(first);
+                bill.setDueEpochDay(due);
+                long id = insertBill(db, bill);
+                if (id <= 0) {
+                    throw new SQLException("Could not add an occurrence of series " + first.getSeriesId());
+                }
+                bill.setId(id);
+                inserted.add(bill);
+                due = dueDays.next();
+            }
+            seriesValues.put(COLUMN_NEXT_DUE_DATE, due);
+            db.update(TABLE_BILL_SERIES, seriesValues, COLUMN_ID + " = ?",
+                    new String[]{String.valueOf(first.getSeriesId())});
+        }
+    }
+
+    // A series whose first occurrence is the given bill
+    private static long insertSeries(SQLiteDatabase db, Bill first) {
+        ContentValues values = seriesRuleValues(first);
+        values.put(COLUMN_ANCHOR_DUE_DATE, first.getDueEpochDay());
+        values.put(COLUMN_NEXT_DUE_DATE, first.getNextDueEpochDay());
+        long id = db.insert(TABLE_BILL_SERIES, null, values);
+        if (id <= 0) {
+            throw new SQLException("Could not add the series of " + first.getName());
+        }
+        return id;
+    }
+
+    private static ContentValues seriesRuleValues(Bill bill) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME, bill.getName());
+        values.put(COLUMN_AMOUNT, bill.getAmount().getCents());
+        values.put(COLUMN_RECURRENCE_TYPE, bill.getRecurrenceType());
+        values.put(COLUMN_RECURRENCE_INTERVAL, bill.getRecurrenceInterval());
+        values.put(COLUMN_REMINDER_OFFSETS, bill.getReminderOffsets());
+        values.put(COLUMN_REMINDER_MINUTE, bill.getReminderMinuteOfDay());
+        return values;
+    }
+
+    // Published once the transaction that added them has committed
+    private void publishInserts(List<Bill> inserted) {
+        for (Bill bill : inserted) {
+            publishChange(BillChange.INSERTED, bill.getId(), new Bill(bill));
+        }
+    }
+
+    // Change notifications
+
+    public void addChangeListener(BillChange.Listener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(BillChange.Listener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Number of writes committed so far; unchanged means the table is as it was
+    public long getChangeVersion() {
+        synchronized (changeLock) {
+            return changeVersion;
+        }
+    }
+
+    // Listeners run under the lock so that every listener sees the changes in the
+    // order they were committed; they must be quick (update a cache, post a message)
+    private void publishChange(int type, long id, Bill bill) {
+        publishChange(type, id, bill, BillChange.UNKNOWN_DUE_DATE);
+    }
+
+    private void publishChange(int type, long id, Bill bill, long previousDueEpochDay) {
+        synchronized (changeLock) {
+            BillChange change = new BillChange(type, id, bill, previousDueEpochDay, ++changeVersion);
+            for (BillChange.Listener listener : changeListeners) {
+                listener.onBillChanged(change);
+            }
+        }
+    }
     
+    // Bills whose name matches an FTS query (see BillSearch.matchQuery), by due date, at
+    // most 'limit' of them. The names are looked up in the bills_search index, then the
+    // rows by primary key.
+    public List<Bill> searchBills(String matchQuery, int limit, CancellationSignal cancellationSignal) {
+        String sql = "SELECT * FROM " + TABLE_BILLS + " WHERE " + COLUMN_ID + " IN (SELECT docid FROM " +
+                TABLE_BILLS_SEARCH + " WHERE " + TABLE_BILLS_SEARCH + " MATCH ?)" +
+                " ORDER BY " + COLUMN_DUE_DATE + ", " + COLUMN_ID + " LIMIT " + limit;
+        return queryBills(sql, new String[]{matchQuery}, cancellationSignal);
+    }
+
     // Get upcoming bills due within the next 'days' days
     public List<Bill> getUpcomingBills(int days) {
-        List<Bill> upcomingBills = new ArrayList<>();
-        
-        // Get current date
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        Calendar calendar = Calendar.getInstance();
-        String today = dateFormat.format(calendar.getTime());
-        
-        // Calculate future date (today + days)
-        calendar.add(Calendar.DAY_OF_MONTH, days);
-        String futureDate = dateFormat.format(calendar.getTime());
-        
-        // Query for upcoming bills
-        String UPCOMING_BILLS_QUERY = "SELECT * FROM " + TABLE_BILLS + 
+        // Window [today, today + days] in epoch days
+        long today = BillDates.todayEpochDay();
+        return getUnpaidBillsDueBetween(today, today + days);
+    }
+
+    // Unpaid bills due between two epoch days (inclusive), by due date
+    public List<Bill> getUnpaidBillsDueBetween(long fromEpochDay, long toEpochDay) {
+        // Index seek on (is_paid, due_date)
+        String UNPAID_BILLS_QUERY = "SELECT * FROM " + TABLE_BILLS +
                                   " WHERE " + COLUMN_IS_PAID + " = 0 AND " +
                                   COLUMN_DUE_DATE + " BETWEEN ? AND ? " +
                                   "ORDER BY " + COLUMN_DUE_DATE + " ASC";
-        
+
+        return queryBills(UNPAID_BILLS_QUERY,
+                new String[]{String.valueOf(fromEpochDay), String.valueOf(toEpochDay)});
+    }
+
+    // Run a SELECT over the bills table and map every row to a Bill
+    private List<Bill> queryBills(String sql, String[] selectionArgs) {
+        return queryBills(sql, selectionArgs, null);
+    }
+
+    // The signal, when given, aborts the query (OperationCanceledException) once cancelled
+    private List<Bill> queryBills(String sql, String[] selectionArgs, CancellationSignal cancellationSignal) {
+        List<Bill> bills = new ArrayList<>();
+
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery(UPCOMING_BILLS_QUERY, new String[]{today, futureDate});
-        
+        Cursor cursor = db.rawQuery(sql, selectionArgs, cancellationSignal);
         try {
-            if (cursor.moveToFirst()) {
-                do {
-                    try {
-                        Bill bill = new Bill();
-                        int idIdx = cursor.getColumnIndexOrThrow(COLUMN_ID);
-                        int nameIdx = cursor.getColumnIndexOrThrow(COLUMN_NAME);
-                        int amountIdx = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT);
-                        int dueDateIdx = cursor.getColumnIndexOrThrow(COLUMN_DUE_DATE);
-                        int isPaidIdx = cursor.getColumnIndexOrThrow(COLUMN_IS_PAID);
-                        int recurrenceTypeIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_TYPE);
-                        int recurrenceIntervalIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_INTERVAL);
-
-                        bill.setId(cursor.getLong(idIdx));
-                        bill.setName(cursor.getString(nameIdx));
-                        bill.setAmount(cursor.getDouble(amountIdx));
-                        bill.setDueDate(cursor.getString(dueDateIdx));
-                        bill.setPaid(cursor.getInt(isPaidIdx) == 1);
-                        bill.setRecurrenceType(cursor.getInt(recurrenceTypeIdx));
-                        bill.setRecurrenceInterval(cursor.getInt(recurrenceIntervalIdx));
-
-                        upcomingBills.add(bill);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                } while (cursor.moveToNext());
+            // Resolve column positions once per query rather than once per row
+            int idIdx = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int nameIdx = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            int amountIdx = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT);
+            int dueDateIdx = cursor.getColumnIndexOrThrow(COLUMN_DUE_DATE);
+            int isPaidIdx = cursor.getColumnIndexOrThrow(COLUMN_IS_PAID);
+            int recurrenceTypeIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_TYPE);
+            int recurrenceIntervalIdx = cursor.getColumnIndexOrThrow(COLUMN_RECURRENCE_INTERVAL);
+            int reminderOffsetsIdx = cursor.getColumnIndexOrThrow(COLUMN_REMINDER_OFFSETS);
+            int reminderMinuteIdx = cursor.getColumnIndexOrThrow(COLUMN_REMINDER_MINUTE);
+            int seriesIdIdx = cursor.getColumnIndexOrThrow(COLUMN_SERIES_ID);
+
+            while (cursor.moveToNext()) {
+                Bill bill = new Bill();
+                bill.setId(cursor.getLong(idIdx));
+                bill.setName(cursor.getString(nameIdx));
+                bill.setAmount(Money.ofCents(cursor.getLong(amountIdx)));
+                bill.setDueEpochDay(cursor.getLong(dueDateIdx));
+                bill.setPaid(cursor.getInt(isPaidIdx) == 1);
+                bill.setRecurrenceType(cursor.getInt(recurrenceTypeIdx));
+                bill.setRecurrenceInterval(cursor.getInt(recurrenceIntervalIdx));
+                bill.setReminderOffsets(cursor.getInt(reminderOffsetsIdx));
+                bill.setReminderMinuteOfDay(cursor.getInt(reminderMinuteIdx));
+                bill.setSeriesId(cursor.getLong(seriesIdIdx)); // 0 when NULL
+
+                bills.add(bill);
             }
+        } catch (OperationCanceledException e) {
+            throw e; // a newer query replaced this one
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -248,8 +1067,202 @@ public class BillDatabaseHelper extends SQLiteOpenHelper {
                 cursor.close();
             }
         }
-        
-        db.close();
-        return upcomingBills;
+
+        return bills;
+    }
+
+    // Scheduled reminders (see ReminderScheduler)
+
+    // A row of the scheduled_reminders table
+    public static final class ScheduledReminder {
+        public final long billId;
+        public final long dueEpochDay;
+        public final int offsetDays;
+        public final long fireAt;
+        public final int state;
+
+        ScheduledReminder(long billId, long dueEpochDay, int offsetDays, long fireAt, int state) {
+            this.billId = billId;
+            this.dueEpochDay = dueEpochDay;
+            this.offsetDays = offsetDays;
+            this.fireAt = fireAt;
+            this.state = state;
+        }
+    }
+
+    // Every reminder registered for a bill
+    public List<ScheduledReminder> getReminders(long billId) {
+        return queryReminders(COLUMN_BILL_ID + " = ?", new String[]{String.valueOf(billId)});
+    }
+
+    // Every reminder not sent yet
+    public List<ScheduledReminder> getPendingReminders() {
+        return queryReminders(COLUMN_STATE + " = " + REMINDER_PENDING, null);
+    }
+
+    public void addReminder(long billId, long dueEpochDay, int offsetDays, long fireAt) {
+        insertReminder(getWritableDatabase(), billId, dueEpochDay, offsetDays, fireAt, REMINDER_PENDING);
+    }
+
+    public void setReminderFireAt(long billId, long dueEpochDay, int offsetDays, long fireAt) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_FIRE_AT, fireAt);
+        getWritableDatabase().update(TABLE_SCHEDULED_REMINDERS, values, REMINDER_KEY_SELECTION,
+                reminderKeyArgs(billId, dueEpochDay, offsetDays));
+    }
+
+    public void deleteReminder(long billId, long dueEpochDay, int offsetDays) {
+        getWritableDatabase().delete(TABLE_SCHEDULED_REMINDERS, REMINDER_KEY_SELECTION,
+                reminderKeyArgs(billId, dueEpochDay, offsetDays));
+    }
+
+    public void deleteReminders(long billId) {
+        getWritableDatabase().delete(TABLE_SCHEDULED_REMINDERS, COLUMN_BILL_ID + " = ?",
+                new String[]{String.valueOf(billId)});
+    }
+
+    // Forget the sent reminders of due dates before the given epoch day (a reminder
+    // snoozed past its due date stays until it fires)
+    public void deleteRemindersDueBefore(long epochDay) {
+        getWritableDatabase().delete(TABLE_SCHEDULED_REMINDERS,
+                COLUMN_STATE + " = " + REMINDER_FIRED + " AND " + COLUMN_REMINDER_DUE_DATE + " < ?",
+                new String[]{String.valueOf(epochDay)});
+    }
+
+    // Fire time of the earliest pending reminder, or -1 if there is none
+    public long getNextReminderTime() {
+        SQLiteDatabase db = getReadableDatabase();
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COALESCE(MIN(" + COLUMN_FIRE_AT + "), -1) FROM " + TABLE_SCHEDULED_REMINDERS +
+                " WHERE " + COLUMN_STATE + " = " + REMINDER_PENDING, null);
+    }
+
+    // Unpaid bills with a pending reminder of their current due date, due at or before
+    // the given time, by due date
+    public List<Bill> getBillsWithRemindersDue(long time) {
+        return queryBills("SELECT DISTINCT b.* FROM " + TABLE_BILLS + " b JOIN " + TABLE_SCHEDULED_REMINDERS + " r" +
+                " ON r." + COLUMN_BILL_ID + " = b." + COLUMN_ID +
+                " AND r." + COLUMN_REMINDER_DUE_DATE + " = b." + COLUMN_DUE_DATE +
+                " WHERE r." + COLUMN_STATE + " = " + REMINDER_PENDING + " AND r." + COLUMN_FIRE_AT + " <= ?" +
+                " AND b." + COLUMN_IS_PAID + " = 0" +
+                " ORDER BY b." + COLUMN_DUE_DATE + " ASC, b." + COLUMN_ID + " ASC",
+                new String[]{String.valueOf(time)});
+    }
+
+    // Mark the pending reminders due at or before the given time as sent
+    public void markRemindersFired(long time) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_STATE, REMINDER_FIRED);
+        getWritableDatabase().update(TABLE_SCHEDULED_REMINDERS, values,
+                COLUMN_STATE + " = " + REMINDER_PENDING + " AND " + COLUMN_FIRE_AT + " <= ?",
+                new String[]{String.valueOf(time)});
+    }
+
+    private static final String REMINDER_KEY_SELECTION =
+            COLUMN_BILL_ID + " = ? AND " + COLUMN_REMINDER_DUE_DATE + " = ? AND " + COLUMN_OFFSET_DAYS + " = ?";
+
+    private static String[] reminderKeyArgs(long billId, long dueEpochDay, int offsetDays) {
+        return new String[]{String.valueOf(billId), String.valueOf(dueEpochDay), String.valueOf(offsetDays)};
+    }
+
+    private static void insertReminder(SQLiteDatabase db, long billId, long dueEpochDay, int offsetDays,
+                                       long fireAt, int state) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_BILL_ID, billId);
+        values.put(COLUMN_REMINDER_DUE_DATE, dueEpochDay);
+        values.put(COLUMN_OFFSET_DAYS, offsetDays);
+        values.put(COLUMN_FIRE_AT, fireAt);
+        values.put(COLUMN_STATE, state);
+        db.insertWithOnConflict(TABLE_SCHEDULED_REMINDERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private List<ScheduledReminder> queryReminders(String selection, String[] selectionArgs) {
+        List<ScheduledReminder> reminders = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED_REMINDERS,
+                new String[]{COLUMN_BILL_ID, COLUMN_REMINDER_DUE_DATE, COLUMN_OFFSET_DAYS, COLUMN_FIRE_AT, COLUMN_STATE},
+                selection, selectionArgs, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                reminders.add(new ScheduledReminder(cursor.getLong(0), cursor.getLong(1),
+                        cursor.getInt(2), cursor.getLong(3), cursor.getInt(4)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return reminders;
+    }
+
+    // Totals of the month starting on the given epoch day: a single-row lookup
+    public MonthSummary getMonthSummary(long monthStartEpochDay) {
+        return getMonthlySummaries(monthStartEpochDay, 1).get(0);
+    }
+
+    // Totals of 'count' consecutive months starting with the month of the given epoch day,
+    // oldest first; months without bills are included with zero totals
+    public List<MonthSummary> getMonthlySummaries(long firstMonthStartEpochDay, int count) {
+        LocalDate first = BillDates.toLocalDate(firstMonthStartEpochDay).withDayOfMonth(1);
+        long from = first.toEpochDay();
+        long to = first.plusMonths(count).toEpochDay(); // exclusive
+
+        Map<Long, MonthSummary> rows = new HashMap<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_MONTH_START + ", " + COLUMN_UNPAID_COUNT + ", " +
+                        COLUMN_UNPAID_TOTAL + ", " + COLUMN_PAID_TOTAL + " FROM " + TABLE_MONTHLY_SUMMARY +
+                        " WHERE " + COLUMN_MONTH_START + " >= ? AND " + COLUMN_MONTH_START + " < ?",
+                new String[]{String.valueOf(from), String.valueOf(to)});
+        try {
+            while (cursor.moveToNext()) {
+                rows.put(cursor.getLong(0), new MonthSummary(cursor.getLong(0), cursor.getInt(1),
+                        Money.ofCents(cursor.getLong(2)), Money.ofCents(cursor.getLong(3))));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        List<MonthSummary> months = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long monthStart = first.plusMonths(i).toEpochDay();
+            MonthSummary row = rows.get(monthStart);
+            months.add(row != null ? row : MonthSummary.empty(monthStart));
+        }
+        return months;
+    }
+
+    // Per-day figures of the month starting on the given epoch day: a single GROUP BY
+    // over the due_date index range of the month
+    public MonthCalendar getMonthCalendar(long monthStartEpochDay) {
+        int length = (int) (BillDates.endOfMonth(monthStartEpochDay) - monthStartEpochDay + 1);
+        int[] counts = new int[length];
+        int[] unpaidCounts = new int[length];
+        long[] totals = new long[length];
+
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_DUE_DATE + ", COUNT(*), " +
+                        "SUM(" + COLUMN_IS_PAID + " = 0), SUM(" + COLUMN_AMOUNT + ") FROM " + TABLE_BILLS +
+                        " WHERE " + COLUMN_DUE_DATE + " BETWEEN ? AND ? GROUP BY " + COLUMN_DUE_DATE,
+                new String[]{String.valueOf(monthStartEpochDay), String.valueOf(monthStartEpochDay + length - 1)});
+        try {
+            while (cursor.moveToNext()) {
+                int day = (int) (cursor.getLong(0) - monthStartEpochDay);
+                counts[day] = cursor.getInt(1);
+                unpaidCounts[day] = cursor.getInt(2);
+                totals[day] = cursor.getLong(3);
+            }
+        } finally {
+            cursor.close();
+        }
+        return new MonthCalendar(monthStartEpochDay, counts, unpaidCounts, totals);
+    }
+
+    // Number of unpaid bills whose due date is before the given epoch day: the unpaid
+    // counts of the previous months, plus an index range over this month's first days
+    public int getOverdueCount(long todayEpochDay) {
+        SQLiteDatabase db = getReadableDatabase();
+        String monthStart = String.valueOf(BillDates.startOfMonth(todayEpochDay));
+        return (int) DatabaseUtils.longForQuery(db,
+                "SELECT (SELECT COALESCE(SUM(" + COLUMN_UNPAID_COUNT + "), 0) FROM " + TABLE_MONTHLY_SUMMARY +
+                " WHERE " + COLUMN_MONTH_START + " < ?) + (SELECT COUNT(*) FROM " + TABLE_BILLS +
+                " WHERE " + COLUMN_IS_PAID + " = 0 AND " + COLUMN_DUE_DATE + " >= ? AND " + COLUMN_DUE_DATE + " < ?)",
+                new String[]{monthStart, monthStart, String.valueOf(todayEpochDay)});
     }
 }
@@ -0,0 +1,105 @@
+package com.example.rappeldesfactures;
+
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// The app's one date module. Due dates are epoch days (days since 1970-01-01), parsed
+// once when a Bill is built, so "days until due", "overdue" and "this month" checks are
+// plain integer comparisons. Calendar work (months, years, formatting) goes through
+// immutable java.time values and formatters, so everything here is thread-safe;
+// do not add SimpleDateFormat or Calendar instances elsewhere.
+public final class BillDates {
+    // The patterns are localized with the locale of the moment they are used (see
+    // displayed()), so that month names follow a change of the device language.
+    // Shown in the list, the edit screen and notifications
+    private static final DateTimeFormatter DISPLAY_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.getDefault());
+    // Forecast months
+    private static final DateTimeFormatter DISPLAY_MONTH_FORMAT =
+            DateTimeFormatter.ofPattern("MMMM yyyy", Locale.getDefault());
+    private static final DateTimeFormatter DISPLAY_DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss", Locale.getDefault());
+
+    private BillDates() {
+    }
+
+    // Convert a calendar date to its epoch day (month is 1-12)
+    public static long toEpochDay(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    public static LocalDate toLocalDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    // Parse a "yyyy-MM-dd" string to its epoch day
+    public static long parseEpochDay(String isoDate) {
+        if (isoDate == null) {
+            throw new IllegalArgumentException("Invalid date: null");
+        }
+        try {
+            return LocalDate.parse(isoDate).toEpochDay();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + isoDate, e);
+        }
+    }
+
+    // Format an epoch day as "yyyy-MM-dd"
+    public static String formatEpochDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    // Format an epoch day as "dd MMM yyyy" for display
+    public static String formatForDisplay(long epochDay) {
+        return displayed(DISPLAY_DATE_FORMAT).format(LocalDate.ofEpochDay(epochDay));
+    }
+
+    // Format the month of an epoch day as "MMMM yyyy" for display
+    public static String formatMonthForDisplay(long epochDay) {
+        return displayed(DISPLAY_MONTH_FORMAT).format(LocalDate.ofEpochDay(epochDay));
+    }
+
+    // Format a wall-clock time (System.currentTimeMillis() base) as "dd/MM/yyyy HH:mm:ss"
+    public static String formatDateTimeForDisplay(long timeMillis) {
+        return displayed(DISPLAY_DATE_TIME_FORMAT).format(Instant.ofEpochMilli(timeMillis).atZone(ZoneId.systemDefault()));
+    }
+
+    // The formatter in the current default locale; withLocale() returns the same
+    // instance while the locale does not change
+    private static DateTimeFormatter displayed(DateTimeFormatter format) {
+        return format.withLocale(Locale.getDefault());
+    }
+
+    // First day of the month containing the given epoch day
+    public static long startOfMonth(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+    }
+
+    // Last day of the month containing the given epoch day
+    public static long endOfMonth(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.withDayOfMonth(date.lengthOfMonth()).toEpochDay();
+    }
+
+    // Today's epoch day in the device time zone
+    public static long todayEpochDay() {
+        return LocalDate.now().toEpochDay();
+    }
+
+    // Epoch day of a wall-clock time (System.currentTimeMillis() base), in the device time zone
+    public static long epochDayOf(long timeMillis) {
+        return Instant.ofEpochMilli(timeMillis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    // Wall-clock time (System.currentTimeMillis() base) of a time of day on an epoch day,
+    // in the device time zone
+    public static long toTimeMillis(long epochDay, int hour, int minute, int second) {
+        return LocalDate.ofEpochDay(epochDay).atTime(hour, minute, second)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
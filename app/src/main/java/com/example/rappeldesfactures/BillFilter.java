@@ -0,0 +1,147 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Immutable filter expression over the predicates of BillFilterIndex: a predicate,
+// or AND / OR / NOT of other filters. Evaluated against the index as BitSet operations.
+final class BillFilter {
+    private static final int KIND_ALL = 0;
+    private static final int KIND_PREDICATE = 1;
+    private static final int KIND_AND = 2;
+    private static final int KIND_OR = 3;
+    private static final int KIND_NOT = 4;
+
+    // Matches every bill
+    static final BillFilter ALL = new BillFilter(KIND_ALL, -1);
+
+    private final int kind;
+    private final int predicate; // BillFilterIndex.UNPAID, ... for KIND_PREDICATE
+    private final BillFilter[] operands;
+
+    private BillFilter(int kind, int predicate, BillFilter... operands) {
+        this.kind = kind;
+        this.predicate = predicate;
+        this.operands = operands;
+    }
+
+    static BillFilter predicate(int predicate) {
+        if (predicate < 0 || predicate >= BillFilterIndex.PREDICATE_COUNT) {
+            throw new IllegalArgumentException("Unknown predicate: " + predicate);
+        }
+        return new BillFilter(KIND_PREDICATE, predicate);
+    }
+
+    // AND of no filter is ALL
+    static BillFilter and(BillFilter... filters) {
+        return filters.length == 0 ? ALL : filters.length == 1 ? filters[0] : new BillFilter(KIND_AND, -1, filters.clone());
+    }
+
+    // OR of no filter is ALL, as the dialog shows every bill when nothing is checked
+    static BillFilter or(BillFilter... filters) {
+        return filters.length == 0 ? ALL : filters.length == 1 ? filters[0] : new BillFilter(KIND_OR, -1, filters.clone());
+    }
+
+    static BillFilter not(BillFilter filter) {
+        return new BillFilter(KIND_NOT, -1, filter);
+    }
+
+    boolean isAll() {
+        return kind == KIND_ALL;
+    }
+
+    // Slots of the matching bills; the returned set belongs to the caller
+    BitSet evaluate(BillFilterIndex index) {
+        switch (kind) {
+            case KIND_PREDICATE:
+                return (BitSet) index.predicate(predicate).clone();
+            case KIND_AND: {
+                BitSet result = operands[0].evaluate(index);
+                for (int i = 1; i < operands.length && !result.isEmpty(); i++) {
+                    result.and(operands[i].evaluate(index));
+                }
+                return result;
+            }
+            case KIND_OR: {
+                BitSet result = operands[0].evaluate(index);
+                for (int i = 1; i < operands.length; i++) {
+                    result.or(operands[i].evaluate(index));
+                }
+                return result;
+            }
+            case KIND_NOT: {
+                BitSet result = (BitSet) index.liveSlots().clone();
+                result.andNot(operands[0].evaluate(index));
+                return result;
+            }
+            default:
+                return (BitSet) index.liveSlots().clone();
+        }
+    }
+
+    // SQL condition for this filter, given the condition of each predicate
+    String toSql(String[] predicateConditions) {
+        switch (kind) {
+            case KIND_PREDICATE:
+                return predicateConditions[predicate];
+            case KIND_AND:
+            case KIND_OR: {
+                StringBuilder sql = new StringBuilder("(");
+                for (int i = 0; i < operands.length; i++) {
+                    if (i > 0) {
+                        sql.append(kind == KIND_AND ? " AND " : " OR ");
+                    }
+                    sql.append(operands[i].toSql(predicateConditions));
+                }
+                return sql.append(')').toString();
+            }
+            case KIND_NOT:
+                return "NOT " + operands[0].toSql(predicateConditions);
+            default:
+                return "1";
+        }
+    }
+
+    // Same as evaluate(index).get(slot), without building the sets
+    boolean matches(BillFilterIndex index, int slot) {
+        switch (kind) {
+            case KIND_PREDICATE:
+                return index.predicate(predicate).get(slot);
+            case KIND_AND:
+                for (BillFilter operand : operands) {
+                    if (!operand.matches(index, slot)) {
+                        return false;
+                    }
+                }
+                return true;
+            case KIND_OR:
+                for (BillFilter operand : operands) {
+                    if (operand.matches(index, slot)) {
+                        return true;
+                    }
+                }
+                return false;
+            case KIND_NOT:
+                return index.liveSlots().get(slot) && !operands[0].matches(index, slot);
+            default:
+                return index.liveSlots().get(slot);
+        }
+    }
+
+    // Filters built from the same predicates in the same shape are equal, so that
+    // applying the dialog again with the same choices does not reload the list
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BillFilter)) {
+            return false;
+        }
+        BillFilter other = (BillFilter) o;
+        return kind == other.kind && predicate == other.predicate && Arrays.equals(operands, other.operands);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * kind + predicate) + Arrays.hashCode(operands);
+    }
+}
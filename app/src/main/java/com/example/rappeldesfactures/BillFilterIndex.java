@@ -0,0 +1,130 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bitset index of the bills loaded by the main screen, used to evaluate BillFilters.
+// Every bill gets a slot (a bit position, reused after the bill is removed) and each
+// predicate keeps the set of slots it holds for, updated as bills are added, changed
+// or removed. A filter combining predicates with AND/OR/NOT is then a few word-wide
+// BitSet operations instead of a test per bill.
+//
+// Overdue and due-this-month depend on the day: they are recomputed when setToday()
+// is called with a new day. Not thread-safe (main thread).
+final class BillFilterIndex {
+    static final int UNPAID = 0;
+    static final int OVERDUE = 1;
+    static final int DUE_THIS_MONTH = 2;
+    static final int RECURRING = 3;
+    static final int PREDICATE_COUNT = 4;
+
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final List<Bill> billsBySlot = new ArrayList<>();
+    private final BitSet liveSlots = new BitSet();
+    private final BitSet[] predicates = new BitSet[PREDICATE_COUNT];
+
+    private long todayEpochDay;
+    private long monthStart;
+    private long monthEnd;
+
+    BillFilterIndex(long todayEpochDay) {
+        for (int i = 0; i < PREDICATE_COUNT; i++) {
+            predicates[i] = new BitSet();
+        }
+        setDay(todayEpochDay);
+    }
+
+    int size() {
+        return slotsById.size();
+    }
+
+    void clear() {
+        slotsById.clear();
+        billsBySlot.clear();
+        liveSlots.clear();
+        for (BitSet predicate : predicates) {
+            predicate.clear();
+        }
+    }
+
+    // Add the bill, or replace the bill with the same id
+    void put(Bill bill) {
+        Integer existing = slotsById.get(bill.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+        } else {
+            slot = liveSlots.nextClearBit(0);
+            slotsById.put(bill.getId(), slot);
+            liveSlots.set(slot);
+        }
+        if (slot == billsBySlot.size()) {
+            billsBySlot.add(bill);
+        } else {
+            billsBySlot.set(slot, bill);
+        }
+        predicates[UNPAID].set(slot, !bill.isPaid());
+        predicates[RECURRING].set(slot, bill.isRecurring());
+        updateDatePredicates(slot, bill);
+    }
+
+    void putAll(List<Bill> bills) {
+        for (Bill bill : bills) {
+            put(bill);
+        }
+    }
+
+    void remove(long id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        billsBySlot.set(slot, null);
+        liveSlots.clear(slot);
+        for (BitSet predicate : predicates) {
+            predicate.clear(slot);
+        }
+    }
+
+    // Recompute the date predicates if the day changed since the last call
+    void setToday(long todayEpochDay) {
+        if (todayEpochDay == this.todayEpochDay) {
+            return;
+        }
+        setDay(todayEpochDay);
+        for (int slot = liveSlots.nextSetBit(0); slot >= 0; slot = liveSlots.nextSetBit(slot + 1)) {
+            updateDatePredicates(slot, billsBySlot.get(slot));
+        }
+    }
+
+    // Slot of the bill with this id, or -1 if it is not in the index
+    int slotOf(long id) {
+        Integer slot = slotsById.get(id);
+        return slot != null ? slot : -1;
+    }
+
+    // Read-only views for BillFilter
+    BitSet liveSlots() {
+        return liveSlots;
+    }
+
+    BitSet predicate(int predicate) {
+        return predicates[predicate];
+    }
+
+    private void setDay(long todayEpochDay) {
+        this.todayEpochDay = todayEpochDay;
+        monthStart = BillDates.startOfMonth(todayEpochDay);
+        monthEnd = BillDates.endOfMonth(todayEpochDay);
+    }
+
+    private void updateDatePredicates(int slot, Bill bill) {
+        long due = bill.getDueEpochDay();
+        predicates[OVERDUE].set(slot, !bill.isPaid() && due < todayEpochDay);
+        predicates[DUE_THIS_MONTH].set(slot, due >= monthStart && due <= monthEnd);
+    }
+}
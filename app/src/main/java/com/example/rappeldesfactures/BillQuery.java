@@ -0,0 +1,29 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.Comparator;
+
+// What the main screen lists: a sort option (BillSortIndex.SORT_*) and a filter, for a
+// given day (overdue, this month and statuses depend on it). BillDatabaseHelper turns
+// it into WHERE / ORDER BY clauses so that only the rows shown are read, in the order
+// they are shown; order() compares bills the same way in memory. Immutable.
+final class BillQuery {
+    final int sortOption;
+    final BillFilter filter;
+    final long todayEpochDay;
+
+    BillQuery(int sortOption, BillFilter filter, long todayEpochDay) {
+        this.sortOption = sortOption;
+        this.filter = filter;
+        this.todayEpochDay = todayEpochDay;
+    }
+
+    // Every bill by due date: the rows and order BillStore caches
+    boolean isDefault() {
+        return sortOption == BillSortIndex.SORT_DUE_DATE && filter.isAll();
+    }
+
+    Comparator<Bill> order() {
+        return BillSortIndex.order(sortOption, todayEpochDay);
+    }
+}
@@ -3,14 +3,45 @@ package com.example.rappeldesfactures;
 
 
 import android.app.Application;
+import android.content.Context;
 
 public class BillReminderApplication extends Application {
-    
+    // Single connection shared by every activity, service and receiver of the process
+    private static BillDatabaseHelper databaseHelper;
+    // Asynchronous access to that connection, for everything running on the main thread
+    private static BillRepository repository;
+
     @Override
     public void onCreate() {
         super.onCreate();
-        
+
         // Initialize notification channel for Android 8.0+
         NotificationHelper.createNotificationChannel(this);
+
+        // Create the shared database helper (the file is opened lazily on first query)
+        getDatabaseHelper(this);
+
+        // Keep the reminder alarm in step with the bills, then add the occurrences of
+        // recurring bills that came within the horizon (their reminders follow)
+        ReminderScheduler.start(this);
+        getRepository(this).materializeSeries(null);
+    }
+
+    // Get the process-wide database helper. It is never closed: SQLite releases
+    // the file when the process dies, and reopening it on every call is what we avoid.
+    public static synchronized BillDatabaseHelper getDatabaseHelper(Context context) {
+        if (databaseHelper == null) {
+            databaseHelper = new BillDatabaseHelper(context.getApplicationContext());
+        }
+        return databaseHelper;
+    }
+
+    // Get the process-wide repository. Activities and receivers go through it so that
+    // no database work runs on the main thread.
+    public static synchronized BillRepository getRepository(Context context) {
+        if (repository == null) {
+            repository = new BillRepository(getDatabaseHelper(context));
+        }
+        return repository;
     }
 }
@@ -0,0 +1,314 @@
+package com.example.rappeldesfactures;
+
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// Asynchronous front of BillDatabaseHelper. Reads run on a small thread pool, writes
+// go one at a time through a single writer thread (so they are applied in the order
+// they were submitted), and results are delivered on the main thread.
+//
+// Reads are answered from the in-memory BillStore whenever it holds the rows asked
+// for; only misses reach SQLite. The store listens to the helper's change events, so
+// it is updated as soon as the database accepted a write and every screen and receiver
+// sees the same, current bills. Screens can listen to the same events to update
+// themselves incrementally (addChangeListener).
+//
+// Every call returns a Future. Cancelling it skips the work if it has not started yet
+// and in any case guarantees the callback will not run, so an activity can cancel its
+// pending reads in onDestroy. Cancelling a search also aborts its SQLite query. Writes
+// should normally not be cancelled.
+public class BillRepository {
+    private static final int READ_THREADS = 2;
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        // Called on the main thread instead of onResult when the database call failed
+        default void onError(Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Figures shown in the summary card of the main screen
+    public static class Summary {
+        public final Money thisMonthTotal;
+        public final int overdueCount;
+
+        Summary(Money thisMonthTotal, int overdueCount) {
+            this.thisMonthTotal = thisMonthTotal;
+            this.overdueCount = overdueCount;
+        }
+    }
+
+    private final BillDatabaseHelper dbHelper;
+    private final BillStore store = new BillStore();
+    private final MonthCalendarCache calendarCache = new MonthCalendarCache();
+    private final ExecutorService readExecutor = Executors.newFixedThreadPool(READ_THREADS);
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Last forecast computed and the change version it was computed at: it is reused
+    // until a bill changes (or the day does)
+    private CashFlowForecast forecast; // guarded by this
+    private long forecastVersion = -1; // guarded by this
+
+    BillRepository(BillDatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        // Registered first, so the store is current before any other listener runs
+        dbHelper.addChangeListener(store);
+        dbHelper.addChangeListener(calendarCache);
+    }
+
+    // Reads
+
+    public Future<List<Bill>> getBillsPage(Bill after, int pageSize, Callback<List<Bill>> callback) {
+        return submit(readExecutor, () -> {
+            List<Bill> cached = store.getPage(after, pageSize);
+            if (cached != null) {
+                return cached;
+            }
+            long readVersion = store.beginRead();
+            List<Bill> page = dbHelper.getBillsPage(after, pageSize);
+            store.putPage(after, page, pageSize, readVersion);
+            return page;
+        }, callback);
+    }
+
+    // A page of the main list for any sort and filter. The default query (every bill by
+    // due date) goes through the store; the others are sorted and filtered by SQLite.
+    public Future<List<Bill>> getBillsPage(BillQuery query, Bill after, int pageSize, Callback<List<Bill>> callback) {
+        if (query.isDefault()) {
+            return getBillsPage(after, pageSize, callback);
+        }
+        return submit(readExecutor, () -> dbHelper.getBillsPage(query, after, pageSize), callback);
+    }
+
+    public Future<Bill> getBillById(long id, Callback<Bill> callback) {
+        return submit(readExecutor, () -> {
+            Bill cached = store.getById(id);
+            if (cached != null) {
+                return cached;
+            }
+            long readVersion = store.beginRead();
+            Bill bill = dbHelper.getBillById(id);
+            if (bill != null) {
+                store.putBill(bill, readVersion);
+            }
+            return bill;
+        }, callback);
+    }
+
+    public Future<List<Bill>> getUpcomingBills(int days, Callback<List<Bill>> callback) {
+        return submit(readExecutor, () -> {
+            long today = BillDates.todayEpochDay();
+            List<Bill> cached = store.getUnpaidBetween(today, today + days);
+            return cached != null ? cached : dbHelper.getUpcomingBills(days);
+        }, callback);
+    }
+
+    public Future<Summary> getSummary(Callback<Summary> callback) {
+        return submit(readExecutor, () -> {
+            long today = BillDates.todayEpochDay();
+            return new Summary(
+                    dbHelper.getMonthSummary(BillDates.startOfMonth(today)).unpaidTotal,
+                    dbHelper.getOverdueCount(today));
+        }, callback);
+    }
+
+    // Totals of the last 'months' months, oldest first, ending with the current month
+    public Future<List<MonthSummary>> getMonthlyTrend(int months, Callback<List<MonthSummary>> callback) {
+        return submit(readExecutor, () -> {
+            long firstMonth = BillDates.toLocalDate(BillDates.todayEpochDay())
+                    .withDayOfMonth(1).minusMonths(months - 1).toEpochDay();
+            return dbHelper.getMonthlySummaries(firstMonth, months);
+        }, callback);
+    }
+
+    // Bills whose name has words starting with each word of the text, by due date, at
+    // most 'limit' of them. Cancel the previous search when starting a new one: its
+    // query is aborted rather than left to finish.
+    public Future<List<Bill>> searchBills(String text, int limit, Callback<List<Bill>> callback) {
+        String matchQuery = BillSearch.matchQuery(text);
+        if (matchQuery == null) {
+            return submit(readExecutor, Collections::emptyList, callback);
+        }
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        return submit(readExecutor, () -> dbHelper.searchBills(matchQuery, limit, cancellationSignal),
+                callback, cancellationSignal);
+    }
+
+    // Per-day figures of the month containing the given epoch day, from the cache when
+    // no write touched the month since it was read
+    public Future<MonthCalendar> getMonthCalendar(long epochDay, Callback<MonthCalendar> callback) {
+        long monthStart = BillDates.startOfMonth(epochDay);
+        return submit(readExecutor, () -> {
+            MonthCalendar cached = calendarCache.get(monthStart);
+            if (cached != null) {
+                return cached;
+            }
+            long readVersion = calendarCache.beginRead();
+            MonthCalendar month = dbHelper.getMonthCalendar(monthStart);
+            calendarCache.put(month, readVersion);
+            return month;
+        }, callback);
+    }
+
+    // The cached month containing the given epoch day, or null. Cheap enough for the
+    // main thread, so that a month seen before is drawn without waiting for a callback.
+    public MonthCalendar peekMonthCalendar(long epochDay) {
+        return calendarCache.get(BillDates.startOfMonth(epochDay));
+    }
+
+    // Projected outgoings for the next CashFlowForecast.MONTHS months. Recurring series
+    // are expanded in parallel on the common ForkJoinPool.
+    public Future<CashFlowForecast> getForecast(Callback<CashFlowForecast> callback) {
+        return submit(readExecutor, () -> {
+            long today = BillDates.todayEpochDay();
+            synchronized (this) {
+                if (forecast != null && forecast.fromEpochDay == today
+                        && forecastVersion == dbHelper.getChangeVersion()) {
+                    return forecast;
+                }
+            }
+            // Read before the data: a write landing in between leaves an older version
+            // with the result, so the next call computes it again
+            long readVersion = dbHelper.getChangeVersion();
+            CashFlowForecast computed = CashFlowForecast.compute(today,
+                    dbHelper.getUnpaidBillsDueBetween(today, CashFlowForecast.endOf(today) - 1),
+                    dbHelper.getAllSeries(), ForkJoinPool.commonPool());
+            synchronized (this) {
+                if (readVersion >= forecastVersion) {
+                    forecast = computed;
+                    forecastVersion = readVersion;
+                }
+            }
+            return computed;
+        }, callback);
+    }
+
+    // Writes (each one publishes a BillChange on the writer thread once committed)
+
+    public Future<Long> addBill(Bill bill, Callback<Long> callback) {
+        return submit(writeExecutor, () -> {
+            long id = dbHelper.addBill(bill);
+            if (id > 0) {
+                bill.setId(id);
+            }
+            return id;
+        }, callback);
+    }
+
+    public Future<Integer> updateBill(Bill bill, Callback<Integer> callback) {
+        return submit(writeExecutor, () -> {
+            int rowsUpdated = dbHelper.updateBill(bill);
+            // A bill made recurring starts a series
+            dbHelper.materializeSeries(BillDatabaseHelper.seriesHorizon());
+            return rowsUpdated;
+        }, callback);
+    }
+
+    // Add the occurrences of recurring series that entered the horizon since the last run
+    public Future<Integer> materializeSeries(Callback<Integer> callback) {
+        return submit(writeExecutor, () -> dbHelper.materializeSeries(BillDatabaseHelper.seriesHorizon()), callback);
+    }
+
+    // Mark a bill as paid, in one queued write (the occurrences of a recurring bill come
+    // from its series). The result is the paid bill, or null if it no longer exists or
+    // was already paid.
+    public Future<Bill> markPaid(long id, Callback<Bill> callback) {
+        return submit(writeExecutor, () -> {
+            Bill bill = dbHelper.getBillById(id);
+            if (bill == null || bill.isPaid()) {
+                return null;
+            }
+            bill.setPaid(true);
+            return dbHelper.updateBill(bill) > 0 ? bill : null;
+        }, callback);
+    }
+
+    public Future<Integer> deleteBill(long id, Callback<Integer> callback) {
+        return submit(writeExecutor, () -> dbHelper.deleteBill(id), callback);
+    }
+
+    // Change notifications. Listeners are called on the writer thread, in commit order;
+    // post to the main thread before touching views.
+
+    public void addChangeListener(BillChange.Listener listener) {
+        dbHelper.addChangeListener(listener);
+    }
+
+    public void removeChangeListener(BillChange.Listener listener) {
+        dbHelper.removeChangeListener(listener);
+    }
+
+    public long getChangeVersion() {
+        return dbHelper.getChangeVersion();
+    }
+
+    private <T> Future<T> submit(ExecutorService executor, Callable<T> work, Callback<T> callback) {
+        return submit(executor, work, callback, null);
+    }
+
+    private <T> Future<T> submit(ExecutorService executor, Callable<T> work, Callback<T> callback,
+                                 CancellationSignal cancellationSignal) {
+        Task<T> task = new Task<>(work, callback, cancellationSignal);
+        executor.execute(task);
+        return task;
+    }
+
+    // FutureTask that hands its outcome to the callback on the main thread, unless it
+    // was cancelled in the meantime. cancel() and the delivery both run on the main
+    // thread, so checking the flag right before delivering is enough.
+    private class Task<T> extends FutureTask<T> {
+        private final Callback<T> callback;
+        private final CancellationSignal cancellationSignal; // null when the work cannot be aborted
+        private volatile boolean cancelled;
+
+        Task(Callable<T> work, Callback<T> callback, CancellationSignal cancellationSignal) {
+            super(work);
+            this.callback = callback;
+            this.cancellationSignal = cancellationSignal;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            if (cancellationSignal != null) {
+                cancellationSignal.cancel();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done() {
+            if (cancelled || callback == null) {
+                return;
+            }
+            try {
+                T result = get();
+                mainHandler.post(() -> {
+                    if (!cancelled) {
+                        callback.onResult(result);
+                    }
+                });
+            } catch (Exception e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                mainHandler.post(() -> {
+                    if (!cancelled) {
+                        callback.onError(cause);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.rappeldesfactures;
+
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Objects;
+
+// Everything one row of the bill list displays, computed ahead of time so that binding
+// a row only copies fields into its views: no date parsing or formatting, no
+// String.format and no resource lookups while the list is scrolled. Models are built
+// off the main thread by a Factory, once per bill and per day (statuses depend on it).
+final class BillRowModel {
+    final Bill bill;
+    final long epochDay; // the day the status was computed for
+    final int status; // Bill.STATUS_*
+    final String nameText;
+    final String amountText;
+    final String dueDateText;
+    final String statusText;
+    final ColorStateList statusTextColor;
+    final ColorFilter statusBackgroundFilter;
+    final int cardBackgroundColor;
+
+    private BillRowModel(Bill bill, long epochDay, int status, String nameText, String amountText,
+                         String dueDateText, String statusText, ColorStateList statusTextColor,
+                         ColorFilter statusBackgroundFilter, int cardBackgroundColor) {
+        this.bill = bill;
+        this.epochDay = epochDay;
+        this.status = status;
+        this.nameText = nameText;
+        this.amountText = amountText;
+        this.dueDateText = dueDateText;
+        this.statusText = statusText;
+        this.statusTextColor = statusTextColor;
+        this.statusBackgroundFilter = statusBackgroundFilter;
+        this.cardBackgroundColor = cardBackgroundColor;
+    }
+
+    // True when both models draw exactly the same row
+    boolean hasSameContent(BillRowModel other) {
+        return status == other.status
+                && cardBackgroundColor == other.cardBackgroundColor
+                && nameText.equals(other.nameText)
+                && amountText.equals(other.amountText)
+                && dueDateText.equals(other.dueDateText)
+                && statusText.equals(other.statusText);
+    }
+
+    // Builds row models. Resolves colors, color filters and fixed strings once; a
+    // factory is not thread-safe and must only be used from one thread at a time.
+    static final class Factory {
+        private final Context context;
+
+        private final String paidText;
+        private final String overdueText;
+        private final String dueTodayText;
+        private final String dueSoonText;
+
+        private final ColorStateList defaultTextColor;
+        private final ColorStateList overdueTextColor;
+        private final ColorStateList dueSoonTextColor;
+        private final ColorStateList upcomingTextColor;
+
+        private final ColorFilter paidFilter;
+        private final ColorFilter overdueFilter;
+        private final ColorFilter dueSoonFilter;
+        private final ColorFilter upcomingFilter;
+
+        private final int paidCardColor;
+        private final int defaultCardColor;
+
+        Factory(Context context) {
+            this.context = context.getApplicationContext();
+
+            paidText = context.getString(R.string.status_paid);
+            overdueText = context.getString(R.string.status_overdue);
+            dueTodayText = context.getString(R.string.status_due_today);
+            dueSoonText = context.getString(R.string.status_due_soon);
+
+            defaultTextColor = ColorStateList.valueOf(ContextCompat.getColor(context, R.color.black));
+            overdueTextColor = ColorStateList.valueOf(ContextCompat.getColor(context, R.color.red));
+            dueSoonTextColor = ColorStateList.valueOf(ContextCompat.getColor(context, R.color.orange));
+            upcomingTextColor = ColorStateList.valueOf(ContextCompat.getColor(context, R.color.primary));
+
+            paidFilter = statusFilter(context, R.color.bill_paid);
+            overdueFilter = statusFilter(context, R.color.bill_overdue);
+            dueSoonFilter = statusFilter(context, R.color.bill_due_soon);
+            upcomingFilter = statusFilter(context, R.color.bill_normal);
+
+            paidCardColor = ContextCompat.getColor(context, R.color.bill_paid);
+            defaultCardColor = ContextCompat.getColor(context, R.color.white);
+        }
+
+        // Reuses 'previous' when it was built from the same bill for the same day
+        BillRowModel build(Bill bill, long todayEpochDay, BillRowModel previous) {
+            if (previous != null && previous.bill == bill && previous.epochDay == todayEpochDay) {
+                return previous;
+            }
+
+            int status = bill.getStatus(todayEpochDay);
+            String statusText;
+            ColorStateList statusTextColor;
+            ColorFilter statusFilter;
+            int cardColor = defaultCardColor;
+            switch (status) {
+                case Bill.STATUS_PAID:
+                    statusText = paidText;
+                    statusTextColor = defaultTextColor;
+                    statusFilter = paidFilter;
+                    cardColor = paidCardColor;
+                    break;
+                case Bill.STATUS_OVERDUE:
+                    statusText = overdueText;
+                    statusTextColor = overdueTextColor;
+                    statusFilter = overdueFilter;
+                    break;
+                case Bill.STATUS_DUE_TODAY:
+                    statusText = dueTodayText;
+                    statusTextColor = dueSoonTextColor;
+                    statusFilter = dueSoonFilter;
+                    break;
+                case Bill.STATUS_DUE_SOON:
+                    statusText = dueSoonText;
+                    statusTextColor = dueSoonTextColor;
+                    statusFilter = dueSoonFilter;
+                    break;
+                default:
+                    statusText = context.getString(R.string.days_remaining, bill.getDaysUntilDue(todayEpochDay));
+                    statusTextColor = upcomingTextColor;
+                    statusFilter = upcomingFilter;
+                    break;
+            }
+
+            return new BillRowModel(bill, todayEpochDay, status,
+                    Objects.toString(bill.getName(), ""),
+                    context.getString(R.string.amount_format, bill.getAmount().toBigDecimal()),
+                    bill.getFormattedDueDate(),
+                    statusText, statusTextColor, statusFilter, cardColor);
+        }
+
+        private static ColorFilter statusFilter(Context context, int colorRes) {
+            return new PorterDuffColorFilter(ContextCompat.getColor(context, colorRes), PorterDuff.Mode.SRC_ATOP);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.Locale;
+
+// Turns what is typed in the search box into an FTS query for the bills_search index
+// (see BillDatabaseHelper): every word must start a word of the name, so "red" finds
+// "Redal eau" and "tele maroc" finds "Maroc Telecom". Words are split like the index's
+// unicode61 tokenizer does, on anything that is not a letter or a digit, which also
+// keeps FTS operators and quotes typed by the user out of the query.
+final class BillSearch {
+    private BillSearch() {
+    }
+
+    // The MATCH argument for the given text, or null if it has no word to look for
+    static String matchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                i += Character.charCount(c);
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            // Lower case, since the upper case words AND, OR and NOT are operators
+            query.append(text.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.rappeldesfactures;
+
+
+// A row of the bill_series table (see BillDatabaseHelper): the rule of a recurring bill,
+// as a bill due on the series' first occurrence, and the due date of the first
+// occurrence not added to the bills table yet.
+public final class BillSeries {
+    public final Bill first;
+    public final long nextDueEpochDay;
+
+    BillSeries(Bill first, long nextDueEpochDay) {
+        this.first = first;
+        this.nextDueEpochDay = nextDueEpochDay;
+    }
+
+    // The occurrences that are not bills yet, in order
+    RecurrenceIterator pendingOccurrences() {
+        RecurrenceIterator dueDays = RecurrenceIterator.of(first);
+        dueDays.skipTo(nextDueEpochDay);
+        return dueDays;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// The bills loaded by the main screen, kept in the order of each of the four sort
+// options at once. Sort keys (due day, cents, case-folded name, status) are computed
+// once when a bill is added, so comparisons never parse or allocate, and each order is
+// a tree updated in O(log n) as bills change. The sorted list of an option is built
+// from its tree on first use and cached until the next change, so switching the sort
+// spinner is a lookup.
+//
+// Statuses depend on the day: they are recomputed, and the status order rebuilt, the
+// first time the status order is used on a new day. Not thread-safe (main thread).
+final class BillSortIndex {
+    static final int SORT_DUE_DATE = 0; // soonest first
+    static final int SORT_AMOUNT = 1;   // highest first
+    static final int SORT_NAME = 2;     // A-Z, ignoring case
+    static final int SORT_STATUS = 3;   // overdue, due today, due soon, upcoming, paid
+
+    private static final class Entry {
+        final Bill bill;
+        final long id;
+        final long dueEpochDay;
+        final long amountCents;
+        final String nameKey;
+        int status;
+
+        Entry(Bill bill, long statusEpochDay) {
+            this.bill = bill;
+            this.id = bill.getId();
+            this.dueEpochDay = bill.getDueEpochDay();
+            this.amountCents = bill.getAmount().getCents();
+            this.nameKey = foldCase(bill.getName());
+            this.status = bill.getStatus(statusEpochDay);
+        }
+    }
+
+    // Ties are broken by due date then id, so every order is total and stable
+    private static final Comparator<Entry> BY_DUE_DATE = (e1, e2) -> {
+        int byDate = Long.compare(e1.dueEpochDay, e2.dueEpochDay);
+        return byDate != 0 ? byDate : Long.compare(e1.id, e2.id);
+    };
+    private static final Comparator<Entry> BY_AMOUNT = (e1, e2) -> {
+        int byAmount = Long.compare(e2.amountCents, e1.amountCents);
+        return byAmount != 0 ? byAmount : BY_DUE_DATE.compare(e1, e2);
+    };
+    private static final Comparator<Entry> BY_NAME = (e1, e2) -> {
+        int byName = e1.nameKey.compareTo(e2.nameKey);
+        return byName != 0 ? byName : BY_DUE_DATE.compare(e1, e2);
+    };
+    private static final Comparator<Entry> BY_STATUS = (e1, e2) -> {
+        int byStatus = Integer.compare(e1.status, e2.status);
+        return byStatus != 0 ? byStatus : BY_DUE_DATE.compare(e1, e2);
+    };
+    // Indexed by sort option
+    private static final List<Comparator<Entry>> ORDERS =
+            Arrays.asList(BY_DUE_DATE, BY_AMOUNT, BY_NAME, BY_STATUS);
+
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+    private final List<TreeSet<Entry>> orders = new ArrayList<>(ORDERS.size());
+    private final List<List<Bill>> sortedLists = new ArrayList<>(ORDERS.size());
+    // Day the status keys were computed for
+    private long statusEpochDay;
+
+    BillSortIndex(long todayEpochDay) {
+        statusEpochDay = todayEpochDay;
+        for (Comparator<Entry> order : ORDERS) {
+            orders.add(new TreeSet<>(order));
+            sortedLists.add(null);
+        }
+    }
+
+    int size() {
+        return entriesById.size();
+    }
+
+    boolean contains(long id) {
+        return entriesById.containsKey(id);
+    }
+
+    void clear() {
+        entriesById.clear();
+        for (TreeSet<Entry> order : orders) {
+            order.clear();
+        }
+        invalidate();
+    }
+
+    // Add the bill, or replace the bill with the same id
+    void put(Bill bill) {
+        removeEntry(bill.getId());
+        Entry entry = new Entry(bill, statusEpochDay);
+        entriesById.put(entry.id, entry);
+        for (TreeSet<Entry> order : orders) {
+            order.add(entry);
+        }
+        invalidate();
+    }
+
+    void putAll(List<Bill> bills) {
+        for (Bill bill : bills) {
+            put(bill);
+        }
+    }
+
+    void remove(long id) {
+        if (removeEntry(id)) {
+            invalidate();
+        }
+    }
+
+    // Every bill in the order of the given sort option. The list is shared and
+    // read-only; it stays valid (but stale) after the index changes.
+    List<Bill> getSorted(int sortOption, long todayEpochDay) {
+        if (sortOption == SORT_STATUS) {
+            updateStatuses(todayEpochDay);
+        }
+        List<Bill> sorted = sortedLists.get(sortOption);
+        if (sorted == null) {
+            TreeSet<Entry> order = orders.get(sortOption);
+            List<Bill> bills = new ArrayList<>(order.size());
+            for (Entry entry : order) {
+                bills.add(entry.bill);
+            }
+            sorted = Collections.unmodifiableList(bills);
+            sortedLists.set(sortOption, sorted);
+        }
+        return sorted;
+    }
+
+    // Comparator for the given sort option over bills held by the index, e.g. to
+    // binary-search a sorted sublist
+    Comparator<Bill> comparator(int sortOption, long todayEpochDay) {
+        if (sortOption == SORT_STATUS) {
+            updateStatuses(todayEpochDay);
+        }
+        Comparator<Entry> order = ORDERS.get(sortOption);
+        return (bill1, bill2) -> order.compare(entriesById.get(bill1.getId()), entriesById.get(bill2.getId()));
+    }
+
+    // The same order for any bills, in or out of an index: keys are computed on every
+    // comparison, so use it for a few comparisons, not to sort. BillDatabaseHelper's
+    // sorted queries return rows in this order.
+    static Comparator<Bill> order(int sortOption, long todayEpochDay) {
+        Comparator<Entry> order = ORDERS.get(sortOption);
+        return (bill1, bill2) -> order.compare(new Entry(bill1, todayEpochDay), new Entry(bill2, todayEpochDay));
+    }
+
+    private void updateStatuses(long todayEpochDay) {
+        if (todayEpochDay == statusEpochDay) {
+            return;
+        }
+        statusEpochDay = todayEpochDay;
+        TreeSet<Entry> byStatus = orders.get(SORT_STATUS);
+        byStatus.clear();
+        for (Entry entry : entriesById.values()) {
+            entry.status = entry.bill.getStatus(todayEpochDay);
+            byStatus.add(entry);
+        }
+        sortedLists.set(SORT_STATUS, null);
+    }
+
+    private boolean removeEntry(long id) {
+        Entry previous = entriesById.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        for (TreeSet<Entry> order : orders) {
+            order.remove(previous);
+        }
+        return true;
+    }
+
+    private void invalidate() {
+        Collections.fill(sortedLists, null);
+    }
+
+    // Same ordering as String.compareToIgnoreCase, folded once instead of per comparison.
+    // Also stored as the name sort key of the bills table.
+    static String foldCase(String name) {
+        if (name == null) {
+            return "";
+        }
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
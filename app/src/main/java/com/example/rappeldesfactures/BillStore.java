@@ -0,0 +1,150 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Process-wide in-memory copy of the bills table, filled as bills are read and kept
+// current by the change events BillDatabaseHelper publishes on every write
+// (write-through: the store is updated on the writer thread, before anyone else hears
+// about the change). Bills are indexed by id and by
+// (due date, id), the order used by the paged list.
+//
+// Pages are always read from the start of that order, so the store tracks how far the
+// contiguous loaded prefix goes: any page or range inside it is answered from memory,
+// anything beyond it is a miss that goes to SQLite.
+//
+// Bills handed out by the store are shared and must be treated as read-only; the store
+// keeps its own copies of what it is given. All methods are thread-safe.
+class BillStore implements BillChange.Listener {
+    static final Comparator<Bill> DUE_DATE_ORDER = (bill1, bill2) -> {
+        int byDate = Long.compare(bill1.getDueEpochDay(), bill2.getDueEpochDay());
+        return byDate != 0 ? byDate : Long.compare(bill1.getId(), bill2.getId());
+    };
+
+    private final Map<Long, Bill> billsById = new HashMap<>();
+    private final TreeSet<Bill> billsByDueDate = new TreeSet<>(DUE_DATE_ORDER);
+
+    // End of the loaded prefix: every bill up to this one (inclusive) is in memory
+    private Bill loadedThrough;
+    // True once the prefix covers the whole table
+    private boolean complete;
+    // Bumped by every write, so that a read which raced with a write is not cached
+    private long version;
+
+    // Version to pass back to the put methods once a database read has finished
+    synchronized long beginRead() {
+        return version;
+    }
+
+    synchronized Bill getById(long id) {
+        return billsById.get(id);
+    }
+
+    // The page after 'after' (or the first page), or null if it is not fully in memory
+    synchronized List<Bill> getPage(Bill after, int pageSize) {
+        NavigableSet<Bill> tail = after == null ? billsByDueDate : billsByDueDate.tailSet(after, false);
+        List<Bill> page = new ArrayList<>(pageSize);
+        for (Bill bill : tail) {
+            if (page.size() == pageSize) {
+                break;
+            }
+            if (!isLoaded(bill)) {
+                return null;
+            }
+            page.add(bill);
+        }
+        return page.size() == pageSize || complete ? page : null;
+    }
+
+    // Unpaid bills due between two epoch days, or null if the table is not fully in memory
+    synchronized List<Bill> getUnpaidBetween(long fromEpochDay, long toEpochDay) {
+        if (!complete) {
+            return null;
+        }
+        List<Bill> bills = new ArrayList<>();
+        for (Bill bill : billsByDueDate) {
+            if (bill.getDueEpochDay() > toEpochDay) {
+                break;
+            }
+            if (bill.getDueEpochDay() >= fromEpochDay && !bill.isPaid()) {
+                bills.add(bill);
+            }
+        }
+        return bills;
+    }
+
+    // Cache one bill read from the database
+    synchronized void putBill(Bill bill, long readVersion) {
+        if (readVersion == version) {
+            replace(bill);
+        }
+    }
+
+    // Cache the rows following 'after' as read from the database. When the read started
+    // inside the loaded prefix the prefix grows to the end of the page, or to the end of
+    // the table if the database returned fewer rows than asked for.
+    synchronized void putPage(Bill after, List<Bill> page, int requestedSize, long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        for (Bill bill : page) {
+            replace(bill);
+        }
+        boolean extendsPrefix = after == null
+                || (loadedThrough != null && DUE_DATE_ORDER.compare(after, loadedThrough) <= 0);
+        if (!extendsPrefix) {
+            return;
+        }
+        if (page.size() < requestedSize) {
+            complete = true;
+        } else {
+            Bill last = page.get(page.size() - 1);
+            if (loadedThrough == null || DUE_DATE_ORDER.compare(last, loadedThrough) > 0) {
+                loadedThrough = new Bill(last);
+            }
+        }
+    }
+
+    @Override
+    public void onBillChanged(BillChange change) {
+        if (change.type == BillChange.DELETED) {
+            onBillDeleted(change.billId);
+        } else {
+            onBillSaved(change.bill);
+        }
+    }
+
+    // Write-through: called after the row was inserted or updated in the database
+    synchronized void onBillSaved(Bill bill) {
+        version++;
+        replace(bill);
+    }
+
+    // Write-through: called after the row was deleted from the database
+    synchronized void onBillDeleted(long id) {
+        version++;
+        Bill removed = billsById.remove(id);
+        if (removed != null) {
+            billsByDueDate.remove(removed);
+        }
+    }
+
+    private void replace(Bill bill) {
+        Bill copy = new Bill(bill);
+        Bill previous = billsById.put(copy.getId(), copy);
+        if (previous != null) {
+            billsByDueDate.remove(previous);
+        }
+        billsByDueDate.add(copy);
+    }
+
+    private boolean isLoaded(Bill bill) {
+        return complete || (loadedThrough != null && DUE_DATE_ORDER.compare(bill, loadedThrough) <= 0);
+    }
+}
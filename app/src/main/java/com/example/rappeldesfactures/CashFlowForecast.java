@@ -0,0 +1,174 @@
+package com.example.rappeldesfactures;
+
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Projected outgoings from today to the end of the MONTHS-th month (the current month
+// counts as the first), per calendar month and per week. A week is 7 days starting
+// today, so the last one may be cut short by the end of the forecast. Immutable.
+//
+// The unpaid bills already in the bills table (one-off bills, and the occurrences of
+// recurring series within the horizon) are counted as they are; the occurrences of a
+// series that are not bills yet are expanded from its rule. Expanding the rules is
+// what costs: it is split between the threads of a ForkJoinPool, each adding its
+// series into its own totals, which are summed when the tasks join.
+public final class CashFlowForecast {
+    public static final int MONTHS = 12;
+    // Series expanded by one task before it stops splitting
+    private static final int SERIES_PER_TASK = 32;
+
+    public final long fromEpochDay; // today
+    public final long toEpochDay; // exclusive: first day after the forecast
+    private final long[] monthStarts; // MONTHS + 1 entries, the last one is toEpochDay
+    private final long[] monthTotals; // whole centimes
+    private final long[] weekTotals;
+
+    private CashFlowForecast(long fromEpochDay, long[] monthStarts, Totals totals) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = monthStarts[MONTHS];
+        this.monthStarts = monthStarts;
+        this.monthTotals = totals.months;
+        this.weekTotals = totals.weeks;
+    }
+
+    // First day after the forecast starting on the given day
+    public static long endOf(long fromEpochDay) {
+        return BillDates.toLocalDate(BillDates.startOfMonth(fromEpochDay)).plusMonths(MONTHS).toEpochDay();
+    }
+
+    // The forecast from the given day, of the unpaid bills due from then on and of the
+    // occurrences of the series that are not bills yet. Bills due outside the forecast
+    // are ignored.
+    public static CashFlowForecast compute(long fromEpochDay, List<Bill> unpaidBills, List<BillSeries> series,
+                                           ForkJoinPool pool) {
+        LocalDate firstMonth = BillDates.toLocalDate(BillDates.startOfMonth(fromEpochDay));
+        long[] monthStarts = new long[MONTHS + 1];
+        for (int i = 0; i <= MONTHS; i++) {
+            monthStarts[i] = firstMonth.plusMonths(i).toEpochDay();
+        }
+        int weekCount = (int) ((monthStarts[MONTHS] - fromEpochDay + 6) / 7);
+
+        Totals totals = pool.invoke(new ExpandTask(fromEpochDay, monthStarts, weekCount, series, 0, series.size()));
+        for (Bill bill : unpaidBills) {
+            if (!bill.isPaid()) {
+                totals.add(fromEpochDay, monthStarts, bill.getDueEpochDay(), bill.getAmount().getCents());
+            }
+        }
+        return new CashFlowForecast(fromEpochDay, monthStarts, totals);
+    }
+
+    public int getMonthCount() {
+        return MONTHS;
+    }
+
+    public long getMonthStart(int month) {
+        return monthStarts[month];
+    }
+
+    public Money getMonthTotal(int month) {
+        return Money.ofCents(monthTotals[month]);
+    }
+
+    public int getWeekCount() {
+        return weekTotals.length;
+    }
+
+    public long getWeekStart(int week) {
+        return fromEpochDay + 7L * week;
+    }
+
+    public Money getWeekTotal(int week) {
+        return Money.ofCents(weekTotals[week]);
+    }
+
+    public Money getTotal() {
+        long cents = 0;
+        for (long monthTotal : monthTotals) {
+            cents = Math.addExact(cents, monthTotal);
+        }
+        return Money.ofCents(cents);
+    }
+
+    // Totals being added up by one task
+    private static final class Totals {
+        final long[] months = new long[MONTHS];
+        final long[] weeks;
+
+        Totals(int weekCount) {
+            weeks = new long[weekCount];
+        }
+
+        void add(long fromEpochDay, long[] monthStarts, long dueEpochDay, long cents) {
+            if (dueEpochDay < fromEpochDay || dueEpochDay >= monthStarts[MONTHS]) {
+                return;
+            }
+            int month = 0;
+            while (monthStarts[month + 1] <= dueEpochDay) {
+                month++;
+            }
+            months[month] = Math.addExact(months[month], cents);
+            int week = (int) ((dueEpochDay - fromEpochDay) / 7);
+            weeks[week] = Math.addExact(weeks[week], cents);
+        }
+
+        Totals plus(Totals other) {
+            for (int i = 0; i < months.length; i++) {
+                months[i] = Math.addExact(months[i], other.months[i]);
+            }
+            for (int i = 0; i < weeks.length; i++) {
+                weeks[i] = Math.addExact(weeks[i], other.weeks[i]);
+            }
+            return this;
+        }
+    }
+
+    // Expands series [start, end): halves the range until it is small enough to be
+    // done in place, forking one half and computing the other
+    private static final class ExpandTask extends RecursiveTask<Totals> {
+        private final long fromEpochDay;
+        private final long[] monthStarts;
+        private final int weekCount;
+        private final List<BillSeries> series;
+        private final int start;
+        private final int end;
+
+        ExpandTask(long fromEpochDay, long[] monthStarts, int weekCount, List<BillSeries> series, int start, int end) {
+            this.fromEpochDay = fromEpochDay;
+            this.monthStarts = monthStarts;
+            this.weekCount = weekCount;
+            this.series = series;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (end - start > SERIES_PER_TASK) {
+                int middle = (start + end) >>> 1;
+                ExpandTask left = new ExpandTask(fromEpochDay, monthStarts, weekCount, series, start, middle);
+                left.fork();
+                Totals right = new ExpandTask(fromEpochDay, monthStarts, weekCount, series, middle, end).compute();
+                return right.plus(left.join());
+            }
+            Totals totals = new Totals(weekCount);
+            long toEpochDay = monthStarts[MONTHS];
+            for (int i = start; i < end; i++) {
+                BillSeries one = series.get(i);
+                long cents = one.first.getAmount().getCents();
+                RecurrenceIterator dueDays = one.pendingOccurrences();
+                dueDays.skipTo(fromEpochDay);
+                while (dueDays.hasNext()) {
+                    long due = dueDays.next();
+                    if (due >= toEpochDay) {
+                        break;
+                    }
+                    totals.add(fromEpochDay, monthStarts, due, cents);
+                }
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.rappeldesfactures;
+
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.Future;
+
+// Projected outgoings for the next 12 months, per month or per week. The forecast is
+// computed by the repository off the main thread and cached there until a bill
+// changes, so coming back to this screen or switching views does not compute it again.
+public class ForecastActivity extends AppCompatActivity {
+    private TextView totalView;
+    private RadioGroup periodGroup;
+    private final ForecastAdapter adapter = new ForecastAdapter();
+    private BillRepository repository;
+    private Future<CashFlowForecast> pendingForecastLoad;
+
+    // Bill changes made while the screen is shown (by a notification action, or the
+    // series being extended) reload the forecast, once per burst of changes
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean reloadPosted; // guarded by mainHandler
+    private final BillChange.Listener changeListener = change -> {
+        synchronized (mainHandler) {
+            if (!reloadPosted) {
+                reloadPosted = true;
+                mainHandler.post(() -> {
+                    synchronized (mainHandler) {
+                        reloadPosted = false;
+                    }
+                    loadForecast();
+                });
+            }
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_forecast);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        totalView = findViewById(R.id.text_forecast_total);
+        periodGroup = findViewById(R.id.forecast_period_group);
+        periodGroup.setOnCheckedChangeListener((group, checkedId) ->
+                adapter.setWeekly(checkedId == R.id.radio_forecast_weekly));
+
+        RecyclerView listView = findViewById(R.id.forecast_list);
+        listView.setLayoutManager(new LinearLayoutManager(this));
+        listView.setAdapter(adapter);
+
+        repository = BillReminderApplication.getRepository(this);
+        repository.addChangeListener(changeListener);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Answered from the cache unless a bill changed or the day did
+        loadForecast();
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.removeChangeListener(changeListener);
+        if (pendingForecastLoad != null) {
+            pendingForecastLoad.cancel(true);
+            pendingForecastLoad = null;
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void loadForecast() {
+        if (pendingForecastLoad != null) {
+            pendingForecastLoad.cancel(true);
+        }
+        pendingForecastLoad = repository.getForecast(forecast -> {
+            pendingForecastLoad = null;
+            totalView.setText(getString(R.string.amount_format, forecast.getTotal().toBigDecimal()));
+            adapter.setForecast(forecast, periodGroup.getCheckedRadioButtonId() == R.id.radio_forecast_weekly);
+        });
+    }
+
+    // One row per month or per week of the forecast
+    private static class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ViewHolder> {
+        private CashFlowForecast forecast;
+        private boolean weekly;
+
+        void setForecast(CashFlowForecast forecast, boolean weekly) {
+            this.forecast = forecast;
+            this.weekly = weekly;
+            notifyDataSetChanged();
+        }
+
+        void setWeekly(boolean weekly) {
+            if (this.weekly != weekly) {
+                this.weekly = weekly;
+                notifyDataSetChanged();
+            }
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.forecast_item, parent, false);
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            Money total;
+            if (weekly) {
+                holder.periodView.setText(holder.itemView.getContext().getString(R.string.forecast_week_of,
+                        BillDates.formatForDisplay(forecast.getWeekStart(position))));
+                total = forecast.getWeekTotal(position);
+            } else {
+                holder.periodView.setText(BillDates.formatMonthForDisplay(forecast.getMonthStart(position)));
+                total = forecast.getMonthTotal(position);
+            }
+            holder.amountView.setText(holder.itemView.getContext().getString(R.string.amount_format,
+                    total.toBigDecimal()));
+        }
+
+        @Override
+        public int getItemCount() {
+            if (forecast == null) {
+                return 0;
+            }
+            return weekly ? forecast.getWeekCount() : forecast.getMonthCount();
+        }
+
+        static class ViewHolder extends RecyclerView.ViewHolder {
+            final TextView periodView;
+            final TextView amountView;
+
+            ViewHolder(@NonNull View itemView) {
+                super(itemView);
+                periodView = itemView.findViewById(R.id.text_forecast_period);
+                amountView = itemView.findViewById(R.id.text_forecast_amount);
+            }
+        }
+    }
+}
@@ -7,45 +7,113 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.GestureDetector;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
-import android.widget.ListView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
-import java.util.Locale;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity implements AdapterView.OnItemSelectedListener {
-    private ListView billListView;
+    private RecyclerView billListView;
     private BillAdapter billAdapter;
-    private List<Bill> billList;
+    // Every loaded bill, kept sorted by each sort option; billList is the current order
+    private final BillSortIndex sortIndex = new BillSortIndex(BillDates.todayEpochDay());
+    private List<Bill> billList = Collections.emptyList();
     private List<Bill> filteredBillList;
-    private BillDatabaseHelper dbHelper;
+    private BillRepository repository;
     private TextView emptyTextView;
     private Spinner sortSpinner;
     private TextView thisMonthAmountView;
     private TextView overdueCountView;
-    private SimpleDateFormat dateFormat;
-    private int currentSortOption = 0; // 0 = by date, 1 = by amount, 2 = by name, 3 = by status
+    private int currentSortOption = BillSortIndex.SORT_DUE_DATE;
+    // Loaded bills as bitsets per filter predicate, and the chosen filter. The filter is
+    // kept across reloads; filterSelection is the dialog state it was built from.
+    private final BillFilterIndex filterIndex = new BillFilterIndex(BillDates.todayEpochDay());
+    private boolean[] filterSelection = {true, false, false, false, false, false, false};
+    private BillFilter currentFilter = BillFilter.ALL;
+
+    // Bills are loaded page by page as the list is scrolled, already sorted and filtered
+    // by SQLite: loadedQuery is the sort and filter the loaded pages were read with
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10; // load the next page this many rows before the end
+    private BillQuery loadedQuery; // null before the first load
+    private Bill lastLoadedBill; // keyset position: last row of the last loaded page
+    private boolean hasMoreBills;
+    private Future<List<Bill>> pendingBillsLoad; // page request in flight
+    private Future<BillRepository.Summary> pendingSummaryLoad;
+
+    // Calendar shown instead of the list. Its months come from the repository (one
+    // GROUP BY each, then its month cache), not from the loaded pages.
+    private View calendarPanel;
+    private TextView calendarMonthView;
+    private MonthCalendarAdapter calendarAdapter;
+    private boolean showingCalendar;
+    private long calendarMonthStart;
+    private Future<MonthCalendar> pendingCalendarLoad;
+
+    // Search box: keystrokes are debounced, then the names are looked up in the FTS
+    // index (see BillDatabaseHelper.searchBills). A newer search cancels the one in
+    // flight, and its results replace the list until the box is cleared or closed.
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final int SEARCH_LIMIT = 200;
+    private String searchText; // last text typed, null when not searching
+    private String shownSearchText; // text of the results shown, null when showing the list
+    private Future<List<Bill>> pendingSearch;
+    private final Runnable searchRunnable = this::runSearch;
+
+    // Writes made anywhere in the app reach this screen as BillChange deltas, so it never
+    // has to reload the list: changes are queued by the listener (writer thread) and
+    // applied to billList / filteredBillList on the main thread.
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<BillChange> pendingChanges = new ArrayList<>(); // guarded by itself
+    private final BillChange.Listener changeListener = change -> {
+        synchronized (pendingChanges) {
+            pendingChanges.add(change);
+            if (pendingChanges.size() == 1) {
+                mainHandler.post(this::applyPendingChanges);
+            }
+        }
+    };
+    private long loadedVersion = -1; // change version the lists reflect, -1 before the first load
+    private long renderedEpochDay; // statuses and filters depend on the current day
+
+    // Filter dialog options: "all", then one per BillFilterIndex predicate, then the modes
+    private static final String[] FILTER_OPTIONS = {"Toutes les factures", "Factures non payées",
+            "Factures en retard", "Factures ce mois-ci", "Factures récurrentes",
+            "Toutes les conditions (ET)", "Exclure ces factures (NON)"};
+    private static final int FILTER_OPTION_ALL = 0;
+    private static final int FILTER_OPTION_FIRST_PREDICATE = 1;
+    private static final int FILTER_OPTION_MATCH_ALL = FILTER_OPTION_FIRST_PREDICATE + BillFilterIndex.PREDICATE_COUNT;
+    private static final int FILTER_OPTION_EXCLUDE = FILTER_OPTION_MATCH_ALL + 1;
+    private static final String STATE_FILTER_SELECTION = "filter_selection";
+    private static final String STATE_SHOWING_CALENDAR = "showing_calendar";
+    private static final String STATE_CALENDAR_MONTH = "calendar_month";
 
     // Codes pour demander les permissions
     private static final int NOTIFICATION_PERMISSION_CODE = 123;
@@ -56,6 +124,11 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        if (savedInstanceState != null && savedInstanceState.getBooleanArray(STATE_FILTER_SELECTION) != null) {
+            filterSelection = savedInstanceState.getBooleanArray(STATE_FILTER_SELECTION);
+            currentFilter = buildFilter(filterSelection);
+        }
+
         // Demander la permission des notifications pour Android 13+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
@@ -82,9 +155,6 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
             }
         }
 
-        // Initialize date format
-        dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
         setTitle(R.string.app_name);
@@ -92,7 +162,9 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
         // Initialize UI components
         billListView = findViewById(R.id.bill_list_view);
         emptyTextView = findViewById(R.id.empty_view);
-        billListView.setEmptyView(emptyTextView);
+        DividerItemDecoration divider = new DividerItemDecoration(this, DividerItemDecoration.VERTICAL);
+        divider.setDrawable(ContextCompat.getDrawable(this, R.drawable.bill_list_divider));
+        billListView.addItemDecoration(divider);
         thisMonthAmountView = findViewById(R.id.text_this_month_amount);
         overdueCountView = findViewById(R.id.text_overdue_count);
 
@@ -117,16 +189,17 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
         // Setup test notification button
         findViewById(R.id.test_notification_button).setOnClickListener(v -> testNotification());
 
-        // Initialize database helper
-        dbHelper = new BillDatabaseHelper(this);
-        
-        // Démarrer le service de notification
-        startService(new Intent(this, BillNotificationService.class));
+        // Database access goes through the asynchronous repository
+        repository = BillReminderApplication.getRepository(this);
+        repository.addChangeListener(changeListener);
 
         // Initialize bills list and adapter
-        billList = new ArrayList<>();
         filteredBillList = new ArrayList<>();
-        billAdapter = new BillAdapter(this, filteredBillList);
+        billAdapter = new BillAdapter(this, selectedBill -> {
+            Intent intent = new Intent(MainActivity.this, AddEditBillActivity.class);
+            intent.putExtra("bill_id", selectedBill.getId());
+            startActivity(intent);
+        });
         billListView.setAdapter(billAdapter);
 
         // Setup FAB for adding a new bill
@@ -148,285 +221,523 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
             });
         }
 
-        // Set click listener for bill items
-        billListView.setOnItemClickListener((parent, view, position, id) -> {
-            Bill selectedBill = filteredBillList.get(position);
-            Intent intent = new Intent(MainActivity.this, AddEditBillActivity.class);
-            intent.putExtra("bill_id", selectedBill.getId());
-            startActivity(intent);
+        // Load the next page when the user scrolls close to the end of the list (search
+        // results are not paged)
+        billListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (hasMoreBills && searchText == null && layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= billAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    appendNextPage();
+                }
+            }
         });
+
+        setupCalendar();
+        if (savedInstanceState != null) {
+            calendarMonthStart = savedInstanceState.getLong(STATE_CALENDAR_MONTH, calendarMonthStart);
+            showCalendar(savedInstanceState.getBoolean(STATE_SHOWING_CALENDAR));
+        }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        loadBillsFromDatabase();
+        refreshIfChanged();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBooleanArray(STATE_FILTER_SELECTION, filterSelection);
+        outState.putBoolean(STATE_SHOWING_CALENDAR, showingCalendar);
+        outState.putLong(STATE_CALENDAR_MONTH, calendarMonthStart);
+    }
+
+    @Override
+    protected void onDestroy() {
+        repository.removeChangeListener(changeListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        // Drop results that would arrive after the activity is gone
+        cancelPendingBillsLoad();
+        if (pendingSummaryLoad != null) {
+            pendingSummaryLoad.cancel(true);
+            pendingSummaryLoad = null;
+        }
+        if (pendingCalendarLoad != null) {
+            pendingCalendarLoad.cancel(true);
+            pendingCalendarLoad = null;
+        }
+        mainHandler.removeCallbacks(searchRunnable);
+        cancelPendingSearch();
+        super.onDestroy();
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
+
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // Search now rather than at the end of the debounce delay
+                onSearchTextChanged(query);
+                mainHandler.removeCallbacks(searchRunnable);
+                runSearch();
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                onSearchTextChanged(newText);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                if (showingCalendar) {
+                    showCalendar(false); // results are shown as a list
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                onSearchTextChanged(null);
+                return true;
+            }
+        });
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_calendar).setTitle(showingCalendar ? R.string.action_list : R.string.action_calendar);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         int id = item.getItemId();
 
         if (id == R.id.action_refresh) {
-            loadBillsFromDatabase();
+            refreshIfChanged();
+            return true;
+        } else if (id == R.id.action_calendar) {
+            showCalendar(!showingCalendar);
+            return true;
+        } else if (id == R.id.action_forecast) {
+            startActivity(new Intent(this, ForecastActivity.class));
             return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
-    private void loadBillsFromDatabase() {
-        billList.clear();
-        billList.addAll(dbHelper.getAllBills());
+    // Edits made since the last load have already been applied as deltas, so the list
+    // only has to be loaded once; after that only a new day changes what is shown.
+    private void refreshIfChanged() {
+        if (loadedVersion < 0) {
+            loadBillsFromDatabase();
+        } else if (BillDates.todayEpochDay() != renderedEpochDay) {
+            // Same bills, but statuses change with the day: their rows are rebuilt
+            applyCurrentSortAndFilter();
+            updateSummaryData();
+        }
+    }
 
-        // Apply current sort and filter
-        applyCurrentSortAndFilter();
+    // Read the first page of the current sort and filter; the rows loaded so far are dropped
+    private void loadBillsFromDatabase() {
+        // Start again from the first page; any load still in flight is now stale
+        cancelPendingBillsLoad();
+        // Every change up to this version is in what the load returns
+        loadedVersion = repository.getChangeVersion();
+        BillQuery query = new BillQuery(currentSortOption, currentFilter, BillDates.todayEpochDay());
+        loadedQuery = query;
+        pendingBillsLoad = repository.getBillsPage(query, null, PAGE_SIZE, page -> {
+            pendingBillsLoad = null;
+            sortIndex.clear();
+            filterIndex.clear();
+            lastLoadedBill = null;
+            onPageLoaded(page, page.size() == PAGE_SIZE);
+
+            // Apply current sort and filter
+            applyCurrentSortAndFilter();
+        });
 
         // Update summary data
         updateSummaryData();
     }
 
-    private void applyCurrentSortAndFilter() {
-        // First apply sort
-        sortBills(currentSortOption);
+    private void cancelPendingBillsLoad() {
+        if (pendingBillsLoad != null) {
+            pendingBillsLoad.cancel(true);
+            pendingBillsLoad = null;
+        }
+    }
 
-        // Then apply current filter (no filter initially, so show all)
-        filteredBillList.clear();
-        filteredBillList.addAll(billList);
+    // Add rows fetched after lastLoadedBill to the loaded bills and move the keyset position
+    private void onPageLoaded(List<Bill> page, boolean mayHaveMore) {
+        hasMoreBills = mayHaveMore;
+        if (!page.isEmpty()) {
+            lastLoadedBill = page.get(page.size() - 1);
+        }
+        sortIndex.putAll(page);
+        filterIndex.putAll(page);
+        billList = sortIndex.getSorted(currentSortOption, BillDates.todayEpochDay());
+    }
 
-        billAdapter.notifyDataSetChanged();
+    // Only reached while the list shows the loaded query itself: any other sort or
+    // filter is either applied to a complete set of loaded bills or reloaded
+    private void appendNextPage() {
+        if (pendingBillsLoad != null) {
+            return; // The next page (or the first one) is already on its way
+        }
+        pendingBillsLoad = repository.getBillsPage(loadedQuery, lastLoadedBill, PAGE_SIZE, page -> {
+            pendingBillsLoad = null;
+            onPageLoaded(page, page.size() == PAGE_SIZE);
+            filteredBillList.addAll(page);
+            showFilteredBills();
+            applyPendingChanges();
+        });
     }
 
-    private void sortBills(int sortOption) {
-        currentSortOption = sortOption;
+    // Hand a snapshot of filteredBillList to the adapter, which builds and diffs the rows
+    // in the background and only updates those that were inserted, removed, moved or changed.
+    // While searching, the results are shown instead and looked up again.
+    private void showFilteredBills() {
+        if (searchText != null) {
+            runSearch(); // the changes may add or remove results
+            return;
+        }
+        emptyTextView.setText(R.string.no_bills);
+        billAdapter.submitBills(new ArrayList<>(filteredBillList), () ->
+                emptyTextView.setVisibility(billAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE));
+    }
 
-        switch (sortOption) {
-            case 0: // Sort by due date (soonest first)
-                Collections.sort(billList, (bill1, bill2) -> {
-                    try {
-                        Date date1 = dateFormat.parse(bill1.getDueDate());
-                        Date date2 = dateFormat.parse(bill2.getDueDate());
-                        if (date1 != null && date2 != null) {
-                            return date1.compareTo(date2);
-                        }
-                    } catch (ParseException e) {
-                        e.printStackTrace();
-                    }
-                    return 0;
-                });
-                break;
+    private void applyPendingChanges() {
+        if (loadedVersion < 0 || pendingBillsLoad != null) {
+            return; // The rows being loaded may predate these changes; applied once they land
+        }
+        List<BillChange> changes;
+        synchronized (pendingChanges) {
+            changes = new ArrayList<>(pendingChanges);
+            pendingChanges.clear();
+        }
+
+        boolean changed = false;
+        long today = BillDates.todayEpochDay();
+        filterIndex.setToday(today);
+        for (BillChange change : changes) {
+            if (change.version <= loadedVersion) {
+                continue; // Already part of the last load
+            }
+            loadedVersion = change.version;
+            changed = true;
+
+            sortIndex.remove(change.billId);
+            filterIndex.remove(change.billId);
+            removeBillById(filteredBillList, change.billId);
+            if (change.type == BillChange.DELETED || !isInLoadedRange(change.bill)) {
+                continue; // Beyond the loaded pages, it will come with the page it belongs to
+            }
+            filterIndex.put(change.bill);
+            int slot = filterIndex.slotOf(change.billId);
+            if (!loadedQuery.filter.matches(filterIndex, slot)) {
+                filterIndex.remove(change.billId);
+                continue; // Not one of the rows the loaded query reads
+            }
+            sortIndex.put(change.bill);
+            if (currentFilter.matches(filterIndex, slot)) {
+                insertSorted(filteredBillList, change.bill, sortIndex.comparator(currentSortOption, today));
+            }
+        }
 
-            case 1: // Sort by amount (highest first)
-                Collections.sort(billList, (bill1, bill2) ->
-                        Double.compare(bill2.getAmount(), bill1.getAmount()));
-                break;
+        if (changed) {
+            billList = sortIndex.getSorted(currentSortOption, today);
+            showFilteredBills();
+            updateSummaryData();
+            if (showingCalendar) {
+                // Only a month these changes touched is read again
+                showCalendarMonth(calendarMonthStart);
+            }
+        }
+    }
 
-            case 2: // Sort by name (A-Z)
-                Collections.sort(billList, (bill1, bill2) -> {
-                    String name1 = bill1.getName() != null ? bill1.getName() : "";
-                    String name2 = bill2.getName() != null ? bill2.getName() : "";
-                    return name1.compareToIgnoreCase(name2);
-                });
-                break;
+    private boolean isInLoadedRange(Bill bill) {
+        // Pages left to load are always those of the loaded query, in its order
+        return !hasMoreBills
+                || (lastLoadedBill != null && loadedQuery.order().compare(bill, lastLoadedBill) <= 0);
+    }
 
-            case 3: // Sort by status (overdue first, then due soon, then upcoming, then paid)
-                Collections.sort(billList, (bill1, bill2) -> {
-                    int status1 = getBillStatusValue(bill1);
-                    int status2 = getBillStatusValue(bill2);
-                    return Integer.compare(status1, status2);
-                });
-                break;
+    private static void removeBillById(List<Bill> bills, long id) {
+        for (int i = 0; i < bills.size(); i++) {
+            if (bills.get(i).getId() == id) {
+                bills.remove(i);
+                return;
+            }
         }
     }
 
-    private int getBillStatusValue(Bill bill) {
-        if (bill.isPaid()) {
-            return 4; // Paid bills come last
+    private static void insertSorted(List<Bill> bills, Bill bill, Comparator<Bill> order) {
+        int position = Collections.binarySearch(bills, bill, order);
+        bills.add(position < 0 ? -(position + 1) : position, bill);
+    }
+
+    // Show the current sort and filter: from memory when the loaded bills include every
+    // bill it shows, otherwise by reading its first page again from SQLite
+    private void applyCurrentSortAndFilter() {
+        if (!isLoaded(currentSortOption, currentFilter)) {
+            loadBillsFromDatabase();
+            return;
+        }
+        if (pendingBillsLoad != null) {
+            return; // Pages of this very query are on their way and will be shown as they land
         }
 
-        try {
-            Date dueDate = dateFormat.parse(bill.getDueDate());
-            if (dueDate == null) return 3; // Default to upcoming
+        // First apply sort
+        renderedEpochDay = BillDates.todayEpochDay();
+        sortBills(currentSortOption);
 
-            Date today = Calendar.getInstance().getTime();
+        // Then apply the current filter, which survives reloads
+        filterBills(currentFilter);
 
-            if (dueDate.before(today)) {
-                return 0; // Overdue bills come first
-            }
+        showFilteredBills();
+        applyPendingChanges();
+    }
 
-            // Calculate days difference
-            long diffInMillis = dueDate.getTime() - today.getTime();
-            long diffInDays = diffInMillis / (24 * 60 * 60 * 1000);
+    // True when the loaded (or loading) bills are enough to show this sort and filter:
+    // they are its own pages, or every bill any filter could select
+    private boolean isLoaded(int sortOption, BillFilter filter) {
+        if (loadedQuery == null) {
+            return false;
+        }
+        boolean sameRows = loadedQuery.filter.equals(filter)
+                && (filter.isAll() || loadedQuery.todayEpochDay == BillDates.todayEpochDay());
+        if (sameRows && loadedQuery.sortOption == sortOption) {
+            return true;
+        }
+        return pendingBillsLoad == null && !hasMoreBills && (sameRows || loadedQuery.filter.isAll());
+    }
 
-            if (diffInDays == 0) {
-                return 1; // Due today comes second
-            } else if (diffInDays <= 3) {
-                return 2; // Due soon comes third
-            } else {
-                return 3; // Upcoming comes fourth yaka ir ivbbi kjjad chia hata tta  hta ht
+    // A lookup: every order is kept up to date by sortIndex
+    private void sortBills(int sortOption) {
+        currentSortOption = sortOption;
+        billList = sortIndex.getSorted(sortOption, BillDates.todayEpochDay());
+    }
+
+    private void updateSummaryData() {
+        // Read from the trigger-maintained monthly_summary table, not summed here
+        if (pendingSummaryLoad != null) {
+            pendingSummaryLoad.cancel(true);
+        }
+        pendingSummaryLoad = repository.getSummary(summary -> {
+            pendingSummaryLoad = null;
+
+            // Update the UI
+            thisMonthAmountView.setText(getString(R.string.amount_format, summary.thisMonthTotal.toBigDecimal()));
+            overdueCountView.setText(String.valueOf(summary.overdueCount));
+        });
+    }
+
+    // A new text cancels the search in flight, whose results would be stale, and starts
+    // a new one once typing pauses. An empty text brings the list back at once.
+    private void onSearchTextChanged(String text) {
+        mainHandler.removeCallbacks(searchRunnable);
+        cancelPendingSearch();
+        if (text == null || BillSearch.matchQuery(text) == null) {
+            searchText = null;
+            if (shownSearchText != null) {
+                shownSearchText = null;
+                showFilteredBills();
             }
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return 3; // Default to upcoming
+            return;
         }
+        searchText = text;
+        mainHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MILLIS);
     }
 
-    private void updateSummaryData() {
-        double thisMonthTotal = 0;
-        int overdueCount = 0;
-
-        // Get current month and year
-        Calendar cal = Calendar.getInstance();
-        int currentMonth = cal.get(Calendar.MONTH);
-        int currentYear = cal.get(Calendar.YEAR);
-
-        for (Bill bill : billList) {
-            // Skip paid bills
-            if (bill.isPaid()) continue;
-
-            try {
-                // Check if bill is overdue
-                Date dueDate = dateFormat.parse(bill.getDueDate());
-                if (dueDate != null && dueDate.before(Calendar.getInstance().getTime())) {
-                    overdueCount++;
-                }
+    private void runSearch() {
+        if (searchText == null) {
+            return;
+        }
+        cancelPendingSearch();
+        String text = searchText;
+        pendingSearch = repository.searchBills(text, SEARCH_LIMIT, results -> {
+            pendingSearch = null;
+            shownSearchText = text;
+            emptyTextView.setText(R.string.no_search_results);
+            billAdapter.submitBills(results, () ->
+                    emptyTextView.setVisibility(billAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE));
+        });
+    }
 
-                // Check if bill is due this month
-                Calendar dueCal = Calendar.getInstance();
-                dueCal.setTime(dueDate != null ? dueDate : new Date());
-                int billMonth = dueCal.get(Calendar.MONTH);
-                int billYear = dueCal.get(Calendar.YEAR);
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
+    }
 
-                if (billMonth == currentMonth && billYear == currentYear) {
-                    thisMonthTotal += bill.getAmount();
+    private void setupCalendar() {
+        calendarPanel = findViewById(R.id.calendar_panel);
+        calendarMonthView = findViewById(R.id.text_calendar_month);
+        calendarAdapter = new MonthCalendarAdapter(this);
+        calendarMonthStart = BillDates.startOfMonth(BillDates.todayEpochDay());
+
+        RecyclerView calendarGrid = findViewById(R.id.calendar_grid);
+        calendarGrid.setLayoutManager(new GridLayoutManager(this, MonthCalendarAdapter.DAYS_PER_WEEK));
+        calendarGrid.setAdapter(calendarAdapter);
+
+        findViewById(R.id.button_previous_month).setOnClickListener(v -> showCalendarMonth(
+                BillDates.toLocalDate(calendarMonthStart).minusMonths(1).toEpochDay()));
+        findViewById(R.id.button_next_month).setOnClickListener(v -> showCalendarMonth(
+                BillDates.toLocalDate(calendarMonthStart).plusMonths(1).toEpochDay()));
+
+        // Swipe left for the next month, right for the previous one
+        GestureDetector swipeDetector = new GestureDetector(this, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                if (e1 == null || Math.abs(velocityX) < Math.abs(velocityY)) {
+                    return false;
                 }
-            } catch (ParseException e) {
-                e.printStackTrace();
+                showCalendarMonth(BillDates.toLocalDate(calendarMonthStart)
+                        .plusMonths(velocityX < 0 ? 1 : -1).toEpochDay());
+                return true;
+            }
+        });
+        calendarGrid.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+            @Override
+            public boolean onInterceptTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent event) {
+                swipeDetector.onTouchEvent(event);
+                return false;
             }
+        });
+    }
+
+    private void showCalendar(boolean show) {
+        showingCalendar = show;
+        calendarPanel.setVisibility(show ? View.VISIBLE : View.GONE);
+        billListView.setVisibility(show ? View.GONE : View.VISIBLE);
+        if (show) {
+            showCalendarMonth(calendarMonthStart);
         }
+        invalidateOptionsMenu();
+    }
 
-        // Update the UI
-        thisMonthAmountView.setText(String.format(Locale.getDefault(),
-                getString(R.string.amount_format), thisMonthTotal));
-        overdueCountView.setText(String.valueOf(overdueCount));
+    // A month seen before, and not touched by a write since, is drawn straight from the
+    // repository's month cache; the others are read in the background
+    private void showCalendarMonth(long monthStart) {
+        calendarMonthStart = monthStart;
+        calendarMonthView.setText(BillDates.formatMonthForDisplay(monthStart));
+        if (pendingCalendarLoad != null) {
+            pendingCalendarLoad.cancel(true);
+            pendingCalendarLoad = null;
+        }
+        MonthCalendar cached = repository.peekMonthCalendar(monthStart);
+        if (cached != null) {
+            calendarAdapter.setMonth(cached, BillDates.todayEpochDay());
+            return;
+        }
+        pendingCalendarLoad = repository.getMonthCalendar(monthStart, month -> {
+            pendingCalendarLoad = null;
+            calendarAdapter.setMonth(month, BillDates.todayEpochDay());
+        });
     }
 
     private void showFilterDialog() {
-        // Create a dialog to show filtering options
-        // This is a simple implementation - you could extend this with more options
-        final String[] options = {"Toutes les factures", "Factures non payées", "Factures en retard", "Factures ce mois-ci"};
-        final boolean[] selectedOptions = {true, false, false, false};
+        // Predicates are combined with OR, or with AND when "Toutes les conditions" is
+        // checked, and the result is inverted when "Exclure" is checked
+        final boolean[] selectedOptions = filterSelection.clone();
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Filtrer les factures")
-                .setMultiChoiceItems(options, selectedOptions, (dialog, which, isChecked) -> {
+                .setMultiChoiceItems(FILTER_OPTIONS, selectedOptions, (dialog, which, isChecked) -> {
+                    if (which >= FILTER_OPTION_MATCH_ALL) {
+                        return; // Modes do not change which predicates are selected
+                    }
                     // If "All Bills" is selected, deselect others
-                    if (which == 0 && isChecked) {
-                        for (int i = 1; i < selectedOptions.length; i++) {
+                    if (which == FILTER_OPTION_ALL && isChecked) {
+                        for (int i = FILTER_OPTION_FIRST_PREDICATE; i < FILTER_OPTION_MATCH_ALL; i++) {
                             selectedOptions[i] = false;
                             ((AlertDialog) dialog).getListView().setItemChecked(i, false);
                         }
                     }
                     // If any other option is selected, deselect "All Bills"
-                    else if (which > 0 && isChecked) {
-                        selectedOptions[0] = false;
-                        ((AlertDialog) dialog).getListView().setItemChecked(0, false);
+                    else if (which != FILTER_OPTION_ALL && isChecked) {
+                        selectedOptions[FILTER_OPTION_ALL] = false;
+                        ((AlertDialog) dialog).getListView().setItemChecked(FILTER_OPTION_ALL, false);
                     }
 
                     // If nothing is selected, select "All Bills"
                     boolean anySelected = false;
-                    for (boolean selected : selectedOptions) {
-                        if (selected) {
+                    for (int i = FILTER_OPTION_ALL; i < FILTER_OPTION_MATCH_ALL; i++) {
+                        if (selectedOptions[i]) {
                             anySelected = true;
                             break;
                         }
                     }
 
                     if (!anySelected) {
-                        selectedOptions[0] = true;
-                        ((AlertDialog) dialog).getListView().setItemChecked(0, true);
+                        selectedOptions[FILTER_OPTION_ALL] = true;
+                        ((AlertDialog) dialog).getListView().setItemChecked(FILTER_OPTION_ALL, true);
                     }
                 })
                 .setPositiveButton("Appliquer", (dialog, id) -> {
                     // Apply the filter
-                    applyFilter(selectedOptions);
+                    filterSelection = selectedOptions;
+                    currentFilter = buildFilter(selectedOptions);
+                    applyCurrentSortAndFilter();
                 })
                 .setNegativeButton("Annuler", (dialog, id) -> dialog.dismiss());
 
         builder.create().show();
     }
 
-    private void applyFilter(boolean[] filterOptions) {
+    private static BillFilter buildFilter(boolean[] selection) {
+        List<BillFilter> predicates = new ArrayList<>();
+        for (int i = 0; i < BillFilterIndex.PREDICATE_COUNT; i++) {
+            if (selection[FILTER_OPTION_FIRST_PREDICATE + i]) {
+                predicates.add(BillFilter.predicate(i));
+            }
+        }
+        if (predicates.isEmpty()) {
+            return BillFilter.ALL;
+        }
+        BillFilter[] operands = predicates.toArray(new BillFilter[0]);
+        BillFilter filter = selection[FILTER_OPTION_MATCH_ALL] ? BillFilter.and(operands) : BillFilter.or(operands);
+        return selection[FILTER_OPTION_EXCLUDE] ? BillFilter.not(filter) : filter;
+    }
+
+    // Keep the bills of billList that the filter selects, in the current sort order
+    private void filterBills(BillFilter filter) {
         filteredBillList.clear();
 
         // If "All Bills" is selected or no filter is applied
-        if (filterOptions[0]) {
+        if (filter.isAll()) {
             filteredBillList.addAll(billList);
         } else {
-            // Get current month and year for filtering
-            Calendar cal = Calendar.getInstance();
-            int currentMonth = cal.get(Calendar.MONTH);
-            int currentYear = cal.get(Calendar.YEAR);
-            Date today = cal.getTime();
-
+            // Matching bills as a bitset, then kept in the current sort order
+            filterIndex.setToday(BillDates.todayEpochDay());
+            BitSet matching = filter.evaluate(filterIndex);
             for (Bill bill : billList) {
-                boolean shouldAdd = false;
-
-                // Unpaid bills filter
-                if (filterOptions[1] && !bill.isPaid()) {
-                    shouldAdd = true;
-                }
-
-                // Overdue bills filter
-                if (filterOptions[2] && !bill.isPaid()) {
-                    try {
-                        Date dueDate = dateFormat.parse(bill.getDueDate());
-                        if (dueDate != null && dueDate.before(today)) {
-                            shouldAdd = true;
-                        }
-                    } catch (ParseException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                // This month's bills filter
-                if (filterOptions[3]) {
-                    try {
-                        Date dueDate = dateFormat.parse(bill.getDueDate());
-                        if (dueDate != null) {
-                            Calendar dueCal = Calendar.getInstance();
-                            dueCal.setTime(dueDate);
-                            int billMonth = dueCal.get(Calendar.MONTH);
-                            int billYear = dueCal.get(Calendar.YEAR);
-
-                            if (billMonth == currentMonth && billYear == currentYear) {
-                                shouldAdd = true;
-                            }
-                        }
-                    } catch (ParseException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                if (shouldAdd) {
+                if (matching.get(filterIndex.slotOf(bill.getId()))) {
                     filteredBillList.add(bill);
                 }
             }
         }
-
-        billAdapter.notifyDataSetChanged();
     }
 
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         // Cette méthode est appelée quand un élément est sélectionné dans le spinner
         if (parent.getId() == R.id.sort_spinner) {
-            sortBills(position);
+            currentSortOption = position;
             applyCurrentSortAndFilter();
         }
     }
@@ -446,17 +757,8 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
                 // Permission accordée, maintenant on peut programmer des notifications
                 Toast.makeText(this, "Permission de notification accordée", Toast.LENGTH_SHORT).show();
 
-                // Reprogrammer les notifications pour toutes les factures à venir
-                new Thread(() -> {
-                    BillDatabaseHelper dbHelper = new BillDatabaseHelper(this);
-                    List<Bill> upcomingBills = dbHelper.getUpcomingBills(30);
-                    for (Bill bill : upcomingBills) {
-                        if (!bill.isPaid()) {
-                            NotificationHelper.scheduleBillReminder(this, (int) bill.getId(),
-                                    bill.getName(), bill.getAmount(), bill.getDueDate());
-                        }
-                    }
-                }).start();
+                // Réarmer l'alarme du prochain rappel
+                ReminderScheduler.reschedule(this, null);
             } else {
                 // Permission refusée
                 Toast.makeText(this, "Les notifications sont désactivées. Vous ne recevrez pas de rappels pour vos factures.", Toast.LENGTH_LONG).show();
@@ -478,13 +780,7 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
         // Créer une notification de test
         Toast.makeText(this, "Envoi d'une notification de test...", Toast.LENGTH_SHORT).show();
 
-        // Créer une notification immédiate
-        Intent notificationIntent = new Intent(this, NotificationReceiver.class);
-        notificationIntent.putExtra("bill_id", 9999); // ID spécial pour test
-        notificationIntent.putExtra("bill_name", "Facture de Test");
-        notificationIntent.putExtra("bill_amount", 100.0);
-        notificationIntent.putExtra("bill_due_date", dateFormat.format(Calendar.getInstance().getTime()));
-
-        sendBroadcast(notificationIntent);
+        // Même chemin que les rappels de l'alarme
+        ReminderScheduler.showTestReminder(this);
     }
 }
@@ -0,0 +1,82 @@
+package com.example.rappeldesfactures;
+
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+// Immutable amount of money held as whole centimes, so that sums are exact.
+// This is also how amounts are stored in the database.
+public final class Money implements Serializable, Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    // Parse user input such as "350", "350.5" or "350,50". Throws NumberFormatException
+    // (like Double.parseDouble did) when the text is not a number or has more than two decimals.
+    public static Money parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+        BigDecimal value = new BigDecimal(text.trim().replace(',', '.'));
+        try {
+            return ofCents(value.movePointRight(2).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // "350.50", suitable for an input field
+    public String toPlainString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    // Locale-formatted with two decimals, e.g. "350,50" in French
+    public String format() {
+        return String.format(Locale.getDefault(), "%.2f", toBigDecimal());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.rappeldesfactures;
+
+
+import java.time.LocalDate;
+
+// Bills due on each day of one month, as shown by the calendar of the main screen:
+// how many, how many of them are unpaid, and their total. Days are numbered from 1, as
+// on the calendar. Immutable.
+public final class MonthCalendar {
+    public final long monthStartEpochDay; // first day of the month
+    private final int[] counts; // index 0 is the 1st
+    private final int[] unpaidCounts;
+    private final long[] totals; // whole centimes
+
+    MonthCalendar(long monthStartEpochDay, int[] counts, int[] unpaidCounts, long[] totals) {
+        this.monthStartEpochDay = monthStartEpochDay;
+        this.counts = counts;
+        this.unpaidCounts = unpaidCounts;
+        this.totals = totals;
+    }
+
+    public int getLengthOfMonth() {
+        return counts.length;
+    }
+
+    // 1 (Monday) to 7 (Sunday), for the blank cells before the 1st
+    public int getFirstDayOfWeek() {
+        return LocalDate.ofEpochDay(monthStartEpochDay).getDayOfWeek().getValue();
+    }
+
+    public long getEpochDay(int dayOfMonth) {
+        return monthStartEpochDay + dayOfMonth - 1;
+    }
+
+    public int getCount(int dayOfMonth) {
+        return counts[dayOfMonth - 1];
+    }
+
+    public int getUnpaidCount(int dayOfMonth) {
+        return unpaidCounts[dayOfMonth - 1];
+    }
+
+    public Money getTotal(int dayOfMonth) {
+        return Money.ofCents(totals[dayOfMonth - 1]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.rappeldesfactures;
+
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+// Cells of the calendar of the main screen, for a GridLayoutManager of 7 columns
+// starting on Monday: blank cells up to the 1st, then one cell per day with the number
+// of bills due and their total. Binding only reads the MonthCalendar arrays.
+public class MonthCalendarAdapter extends RecyclerView.Adapter<MonthCalendarAdapter.ViewHolder> {
+    public static final int DAYS_PER_WEEK = 7;
+
+    private final Context context;
+    private MonthCalendar month;
+    private long todayEpochDay;
+
+    public MonthCalendarAdapter(Context context) {
+        this.context = context;
+    }
+
+    public void setMonth(MonthCalendar month, long todayEpochDay) {
+        this.month = month;
+        this.todayEpochDay = todayEpochDay;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.calendar_day_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        int dayOfMonth = position - leadingBlanks() + 1;
+        if (dayOfMonth < 1) {
+            holder.dayView.setText("");
+            holder.countView.setVisibility(View.INVISIBLE);
+            holder.totalView.setText("");
+            holder.itemView.setBackgroundColor(ContextCompat.getColor(context, R.color.bill_normal));
+            return;
+        }
+
+        long epochDay = month.getEpochDay(dayOfMonth);
+        int count = month.getCount(dayOfMonth);
+        int unpaidCount = month.getUnpaidCount(dayOfMonth);
+        holder.dayView.setText(String.valueOf(dayOfMonth));
+        holder.dayView.setTypeface(null, epochDay == todayEpochDay ? Typeface.BOLD : Typeface.NORMAL);
+        if (count > 0) {
+            holder.countView.setVisibility(View.VISIBLE);
+            holder.countView.setText(String.valueOf(count));
+            holder.totalView.setText(month.getTotal(dayOfMonth).toPlainString());
+        } else {
+            holder.countView.setVisibility(View.INVISIBLE);
+            holder.totalView.setText("");
+        }
+
+        // Same colours as the rows of the list
+        int color;
+        if (unpaidCount > 0 && epochDay < todayEpochDay) {
+            color = R.color.bill_overdue;
+        } else if (unpaidCount > 0) {
+            color = R.color.bill_due_soon;
+        } else if (count > 0) {
+            color = R.color.bill_paid;
+        } else {
+            color = R.color.bill_normal;
+        }
+        holder.itemView.setBackgroundColor(ContextCompat.getColor(context, color));
+    }
+
+    @Override
+    public int getItemCount() {
+        return month == null ? 0 : leadingBlanks() + month.getLengthOfMonth();
+    }
+
+    private int leadingBlanks() {
+        return month.getFirstDayOfWeek() - 1;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView dayView;
+        final TextView countView;
+        final TextView totalView;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            dayView = itemView.findViewById(R.id.text_calendar_day);
+            countView = itemView.findViewById(R.id.text_calendar_count);
+            totalView = itemView.findViewById(R.id.text_calendar_total);
+        }
+    }
+}
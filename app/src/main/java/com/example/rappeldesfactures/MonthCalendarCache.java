@@ -0,0 +1,56 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The months of the calendar computed last, least recently used first out, so going
+// back and forth between months reads each of them once. A write only drops the
+// months it touched: the month of the bill's new due date and the one of its previous
+// due date (BillChange.previousDueEpochDay), or every month when that is not known.
+//
+// Like BillStore, the cache listens to the helper's change events and refuses a month
+// whose read raced with a write. All methods are thread-safe.
+class MonthCalendarCache implements BillChange.Listener {
+    static final int MAX_MONTHS = 6;
+
+    private final Map<Long, MonthCalendar> months = new LinkedHashMap<Long, MonthCalendar>(MAX_MONTHS + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MonthCalendar> eldest) {
+            return size() > MAX_MONTHS;
+        }
+    };
+    // Bumped by every write, so that a read which raced with a write is not cached
+    private long version;
+
+    // Version to pass back to put() once a database read has finished
+    synchronized long beginRead() {
+        return version;
+    }
+
+    // The month starting on the given epoch day, or null if it is not cached
+    synchronized MonthCalendar get(long monthStartEpochDay) {
+        return months.get(monthStartEpochDay);
+    }
+
+    synchronized void put(MonthCalendar month, long readVersion) {
+        if (readVersion == version) {
+            months.put(month.monthStartEpochDay, month);
+        }
+    }
+
+    @Override
+    public synchronized void onBillChanged(BillChange change) {
+        version++;
+        if (change.type != BillChange.INSERTED && change.previousDueEpochDay == BillChange.UNKNOWN_DUE_DATE) {
+            months.clear();
+            return;
+        }
+        if (change.bill != null) {
+            months.remove(BillDates.startOfMonth(change.bill.getDueEpochDay()));
+        }
+        if (change.previousDueEpochDay != BillChange.UNKNOWN_DUE_DATE) {
+            months.remove(BillDates.startOfMonth(change.previousDueEpochDay));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.rappeldesfactures;
+
+
+// Totals of the bills due in one month, as kept by the monthly_summary table
+// (see BillDatabaseHelper). Immutable.
+public final class MonthSummary {
+    public final long monthStartEpochDay; // first day of the month
+    public final int unpaidCount;
+    public final Money unpaidTotal;
+    public final Money paidTotal;
+
+    MonthSummary(long monthStartEpochDay, int unpaidCount, Money unpaidTotal, Money paidTotal) {
+        this.monthStartEpochDay = monthStartEpochDay;
+        this.unpaidCount = unpaidCount;
+        this.unpaidTotal = unpaidTotal;
+        this.paidTotal = paidTotal;
+    }
+
+    // A month without any bill
+    static MonthSummary empty(long monthStartEpochDay) {
+        return new MonthSummary(monthStartEpochDay, 0, Money.ZERO, Money.ZERO);
+    }
+}
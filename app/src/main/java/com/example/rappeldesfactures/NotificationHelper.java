@@ -9,20 +9,18 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
-import android.widget.Toast;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import androidx.core.app.NotificationCompat;
+
+import java.util.List;
 
 public class NotificationHelper {
     public static final String CHANNEL_ID = "bill_reminder_channel";
-    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
-    private static final int NOTIFICATION_REQUEST_CODE = 100;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+    private static final int REMINDER_ALARM_REQUEST_CODE = 100;
+    // Digests are posted under this tag with the due epoch day as id, so that their ids
+    // never collide with the bill ids of the per-bill notifications
+    private static final String DIGEST_TAG = "digest";
+    private static final String DIGEST_GROUP_PREFIX = "bills_due_";
 
     // Create notification channel for Android 8.0 and higher
     public static void createNotificationChannel(Context context) {
@@ -39,118 +37,159 @@ public class NotificationHelper {
         }
     }
 
-    // Schedule a bill reminder notification
-    public static void scheduleBillReminder(Context context, int billId, String billName, double amount, String dueDate) {
-        try {
-            if (context == null || dueDate == null || dueDate.isEmpty()) {
-                return; // Skip scheduling if we have null values
-            }
-            
-            // Get due date and calculate notification time (1 day before due date)
-            Date dueDateObj = DATE_FORMAT.parse(dueDate);
-            
-            Calendar notificationTime = Calendar.getInstance();
-            notificationTime.setTime(dueDateObj);
-            notificationTime.add(Calendar.DAY_OF_MONTH, -1); // Notify 1 day before due date
-            notificationTime.set(Calendar.HOUR_OF_DAY, 10); // Notify at 10:00 (22:00 AM)
-            notificationTime.set(Calendar.MINUTE, 00);
-            notificationTime.set(Calendar.SECOND, 16);
-            
-            // Check if notification time has already passed, in which case notify tomorrow
-            Calendar now = Calendar.getInstance();
-            if (notificationTime.before(now)) {
-                // If due date is today, notify in 1 hour //
-                if (dueDateObj.getTime() - now.getTimeInMillis() < DAY_IN_MILLIS) {
-                    notificationTime.setTimeInMillis(now.getTimeInMillis() + TimeUnit.HOURS.toMillis(1));
-                } else {
-                    // Otherwise, skip this notification
-                    return;
-                }
-            }
-            
-            // Create intent for the notification
-            Intent notificationIntent = new Intent(context, NotificationReceiver.class);
-            notificationIntent.putExtra("bill_id", billId);
-            notificationIntent.putExtra("bill_name", billName);
-            notificationIntent.putExtra("bill_amount", amount);
-            notificationIntent.putExtra("bill_due_date", dueDate);
-            
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    billId, // Use bill ID as request code to ensure uniqueness
-                    notificationIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            // Schedule the notification
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            // Utiliser une notification immédiate pour les tests
-            if (System.currentTimeMillis() + 60000 > notificationTime.getTimeInMillis()) {
-                // Si l'heure de notification est dans moins d'une minute, programmer une notification immédiate
-                Toast.makeText(context, "Notification immédiate programmée...", Toast.LENGTH_SHORT).show();
-                context.sendBroadcast(notificationIntent);
+    // Arm the reminder alarm for the given wall-clock time, replacing any previous one.
+    // There is one alarm for all bills, set at the end of a reminder bucket (see
+    // ReminderScheduler); when it fires, NotificationReceiver gets
+    // ReminderScheduler.ACTION_REMINDER_ALARM and the bills are read from the database.
+    public static void setReminderAlarm(Context context, long triggerAtMillis) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pendingIntent = reminderAlarmIntent(context);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) { // Android 12+
+            if (alarmManager.canScheduleExactAlarms()) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
             } else {
-                // Sinon, utiliser des alarmes moins précises qui sont plus susceptibles de fonctionner
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) { // Android 12+
-                    // Pour Android 12+, utiliser une alarme inexacte qui est moins susceptible d'être limitée
-                    if (alarmManager.canScheduleExactAlarms()) {
-                        Toast.makeText(context, "Programmation d'alarme exacte autorisée", Toast.LENGTH_SHORT).show();
-                        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, notificationTime.getTimeInMillis(), pendingIntent);
-                    } else {
-                        Toast.makeText(context, "Programmation d'alarme exacte NON autorisée, utilisation d'alarme inexacte", Toast.LENGTH_LONG).show();
-                        alarmManager.set(AlarmManager.RTC_WAKEUP, notificationTime.getTimeInMillis(), pendingIntent);
-                    }
-                } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) { // Android 6-11
-                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, notificationTime.getTimeInMillis(), pendingIntent);
-                } else { // Versions plus anciennes
-                    alarmManager.setExact(AlarmManager.RTC_WAKEUP, notificationTime.getTimeInMillis(), pendingIntent);
-                }
+                // Without the permission, an inexact alarm that may be delayed a little
+                alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
             }
-            
-            // Afficher un message de débogage pour confirmer la programmation
-            Toast.makeText(context, "Notification programmée pour " + new SimpleDateFormat("dd/MM/yyyy HH:mm:ss", Locale.getDefault()).format(new Date(notificationTime.getTimeInMillis())), Toast.LENGTH_LONG).show();
-        } catch (ParseException e) {
-            e.printStackTrace();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) { // Android 6-11
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        } else { // Versions plus anciennes
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
         }
     }
-    
-    // Cancel a scheduled bill reminder
-    public static void cancelBillReminder(Context context, int billId) {
-        if (context == null) {
-            return; // Skip if context is null
+
+    // Cancel the reminder alarm, when no reminder is left to fire
+    public static void cancelReminderAlarm(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(reminderAlarmIntent(context));
         }
-        
-        try {
-            Intent notificationIntent = new Intent(context, NotificationReceiver.class);
-            
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    billId,
-                    notificationIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            if (alarmManager != null && pendingIntent != null) {
-                alarmManager.cancel(pendingIntent);
+    }
+
+    // The same intent (component, action, request code) every time, so that setting the
+    // alarm replaces the armed one and cancelling finds it
+    private static PendingIntent reminderAlarmIntent(Context context) {
+        Intent alarmIntent = new Intent(context, NotificationReceiver.class);
+        alarmIntent.setAction(ReminderScheduler.ACTION_REMINDER_ALARM);
+        return PendingIntent.getBroadcast(
+                context,
+                REMINDER_ALARM_REQUEST_CODE,
+                alarmIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    // Post the reminders of the given bills, ordered by due date (as
+    // BillDatabaseHelper.getBillsWithRemindersDue returns them). The bills due on the
+    // same day are taken in one pass and grouped under an inbox-style digest; only the
+    // digest alerts, so a day with many bills buzzes once. A lone bill gets a plain
+    // notification, as before.
+    static void showReminders(Context context, List<Bill> bills) {
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        int start = 0;
+        while (start < bills.size()) {
+            long dueEpochDay = bills.get(start).getDueEpochDay();
+            int end = start + 1;
+            while (end < bills.size() && bills.get(end).getDueEpochDay() == dueEpochDay) {
+                end++;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (end - start == 1) {
+                Bill bill = bills.get(start);
+                notificationManager.notify((int) bill.getId(), reminderBuilder(context, bill).build());
+            } else {
+                showDigest(context, notificationManager, bills.subList(start, end), dueEpochDay);
+            }
+            start = end;
         }
     }
-    
-    // Update an existing bill reminder (cancel and reschedule)
-    public static void updateBillReminder(Context context, int billId, String billName, double amount, String dueDate) {
-        if (context == null) {
-            return; // Skip if context is null
-        }
-        
-        try {
-            cancelBillReminder(context, billId);
-            scheduleBillReminder(context, billId, billName, amount, dueDate);
-        } catch (Exception e) {
-            e.printStackTrace();
+
+    private static void showDigest(Context context, NotificationManager notificationManager,
+                                   List<Bill> dayBills, long dueEpochDay) {
+        String group = DIGEST_GROUP_PREFIX + dueEpochDay;
+        String title = context.getResources().getQuantityString(R.plurals.notification_digest_title,
+                dayBills.size(), dayBills.size(), BillDates.formatForDisplay(dueEpochDay));
+        NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(title);
+        StringBuilder names = new StringBuilder();
+        for (Bill bill : dayBills) {
+            inbox.addLine(context.getString(R.string.notification_digest_line,
+                    bill.getName(), formatAmount(context, bill.getAmount())));
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(bill.getName());
+
+            // Children stay silent and are bundled under the digest
+            notificationManager.notify((int) bill.getId(), reminderBuilder(context, bill)
+                    .setGroup(group)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                    .build());
         }
+
+        NotificationCompat.Builder summary = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(title)
+                .setContentText(names)
+                .setStyle(inbox)
+                .setNumber(dayBills.size())
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setContentIntent(openAppIntent(context, (int) dueEpochDay))
+                .setGroup(group)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .setAutoCancel(true);
+        notificationManager.notify(DIGEST_TAG, (int) dueEpochDay, summary.build());
+    }
+
+    // The reminder of one bill, opening the app when tapped
+    private static NotificationCompat.Builder reminderBuilder(Context context, Bill bill) {
+        String notificationContent = context.getString(
+                R.string.notification_content,
+                bill.getName(),
+                formatAmount(context, bill.getAmount()),
+                bill.getFormattedDueDate()
+        );
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(context.getString(R.string.notification_title))
+                .setContentText(notificationContent)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationContent))
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setContentIntent(openAppIntent(context, (int) bill.getId()))
+                .addAction(0, context.getString(R.string.notification_action_paid),
+                        billActionIntent(context, BillActionReceiver.ACTION_MARK_PAID, bill))
+                .addAction(0, context.getString(R.string.notification_action_snooze),
+                        billActionIntent(context, BillActionReceiver.ACTION_SNOOZE, bill))
+                .setAutoCancel(true);
+    }
+
+    // Handled by BillActionReceiver in the background. The action tells the intents of
+    // one bill apart, the request code those of different bills.
+    private static PendingIntent billActionIntent(Context context, String action, Bill bill) {
+        Intent actionIntent = new Intent(context, BillActionReceiver.class);
+        actionIntent.setAction(action);
+        actionIntent.putExtra(BillActionReceiver.EXTRA_BILL_ID, bill.getId());
+        actionIntent.putExtra(BillActionReceiver.EXTRA_DUE_DATE, bill.getDueEpochDay());
+        return PendingIntent.getBroadcast(
+                context,
+                (int) bill.getId(),
+                actionIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    private static PendingIntent openAppIntent(Context context, int requestCode) {
+        Intent openAppIntent = new Intent(context, MainActivity.class);
+        openAppIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        return PendingIntent.getActivity(
+                context,
+                requestCode,
+                openAppIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    private static String formatAmount(Context context, Money amount) {
+        return context.getString(R.string.amount_format, amount.toBigDecimal());
     }
 }
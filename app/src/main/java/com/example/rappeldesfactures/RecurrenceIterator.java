@@ -0,0 +1,163 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.NoSuchElementException;
+
+// The due dates of a recurrence rule (Bill.RECURRENCE_*), as epoch days, computed from
+// the anchor (the first occurrence) rather than from the previous date, so a monthly
+// bill anchored on the 31st is due on the 29th of February and on the 31st of March
+// again instead of drifting to the 29th for good. Months shorter than the anchor's day
+// are clamped to their last day, as LocalDate.plusMonths() does.
+//
+// Each step is a little integer arithmetic on primitives (the civil calendar
+// conversions are Howard Hinnant's), with no LocalDate or Calendar per occurrence, and
+// skipTo() jumps to a date in constant time, so "every occurrence in the next 12
+// months" costs one call per occurrence and nothing else.
+//
+// A rule other than RECURRENCE_NONE is infinite; RECURRENCE_NONE has the anchor as its
+// only occurrence. Not thread-safe.
+final class RecurrenceIterator {
+    private final long anchorEpochDay;
+    private final int recurrenceType;
+    // Day-based rules: days per step. Month-based rules: months per step, and the
+    // anchor's month index (year * 12 + month - 1) and day of month.
+    private final long step;
+    private final long anchorMonthIndex;
+    private final int anchorDayOfMonth;
+
+    private long index; // of the occurrence next() returns
+
+    RecurrenceIterator(long anchorEpochDay, int recurrenceType, int recurrenceInterval) {
+        this.anchorEpochDay = anchorEpochDay;
+        this.recurrenceType = recurrenceType;
+        int interval = Math.max(1, recurrenceInterval);
+        switch (recurrenceType) {
+            case Bill.RECURRENCE_DAILY:
+                step = interval;
+                break;
+            case Bill.RECURRENCE_WEEKLY:
+                step = 7L * interval;
+                break;
+            case Bill.RECURRENCE_MONTHLY:
+                step = interval;
+                break;
+            case Bill.RECURRENCE_YEARLY:
+                step = 12L * interval;
+                break;
+            default:
+                step = 0;
+                break;
+        }
+        if (isMonthBased()) {
+            long yearMonthDay = civilFromDays(anchorEpochDay);
+            anchorMonthIndex = monthIndex(yearMonthDay);
+            anchorDayOfMonth = (int) (yearMonthDay % 100);
+        } else {
+            anchorMonthIndex = 0;
+            anchorDayOfMonth = 0;
+        }
+    }
+
+    // The occurrences of a bill's rule, starting from its due date
+    static RecurrenceIterator of(Bill bill) {
+        return new RecurrenceIterator(bill.getDueEpochDay(), bill.getRecurrenceType(), bill.getRecurrenceInterval());
+    }
+
+    boolean hasNext() {
+        return step != 0 || index == 0;
+    }
+
+    long next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return occurrence(index++);
+    }
+
+    // Move so that next() returns the first occurrence on or after the given epoch day
+    // (never backwards)
+    void skipTo(long epochDay) {
+        if (step == 0) {
+            if (epochDay > anchorEpochDay) {
+                index = Math.max(index, 1);
+            }
+            return;
+        }
+        long n;
+        if (isMonthBased()) {
+            n = ceilDiv(monthIndex(civilFromDays(epochDay)) - anchorMonthIndex, step);
+            // Same month as the target but clamped (or anchored) before its day
+            if (n >= 0 && occurrence(n) < epochDay) {
+                n++;
+            }
+        } else {
+            n = ceilDiv(epochDay - anchorEpochDay, step);
+        }
+        index = Math.max(index, n);
+    }
+
+    // The n-th occurrence (the anchor is the 0th)
+    long occurrence(long n) {
+        if (!isMonthBased()) {
+            return anchorEpochDay + n * step;
+        }
+        long monthIndex = anchorMonthIndex + n * step;
+        long year = Math.floorDiv(monthIndex, 12);
+        int month = (int) Math.floorMod(monthIndex, 12) + 1;
+        int day = Math.min(anchorDayOfMonth, lengthOfMonth(year, month));
+        return daysFromCivil(year, month, day);
+    }
+
+    private boolean isMonthBased() {
+        return recurrenceType == Bill.RECURRENCE_MONTHLY || recurrenceType == Bill.RECURRENCE_YEARLY;
+    }
+
+    // year * 12 + month - 1 of a packed date (see civilFromDays)
+    private static long monthIndex(long yearMonthDay) {
+        return yearMonthDay / 10000 * 12 + yearMonthDay / 100 % 100 - 1;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    static int lengthOfMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Epoch day of a proleptic Gregorian date
+    static long daysFromCivil(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Date of an epoch day, packed as year * 10000 + month * 100 + day to stay primitive
+    // (years from 1 on, which is all a due date can be)
+    static long civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+}
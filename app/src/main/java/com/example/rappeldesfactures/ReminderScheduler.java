@@ -0,0 +1,258 @@
+package com.example.rappeldesfactures;
+
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Event-driven reminders: a single alarm is armed for the end of the next bucket in
+// which any reminder is due (see ReminderTimes), and re-armed after it fires and after
+// bill changes, so nothing wakes the device between reminders. When it fires, the bills
+// of every reminder due by then are read from the database and posted together, one
+// digest per due day (see NotificationHelper.showReminders).
+//
+// Reminders are registered in the scheduled_reminders table (bill, due date, offset of
+// the bill's reminder plan, fire time, pending or sent). A bill change only diffs that
+// bill's rows against the reminders its plan asks for; a reboot only re-arms the alarm
+// for the earliest pending row. However many offsets the plans have, there is still one
+// alarm, and finding the next one is one index seek on (state, fire_at): an in-memory
+// timer structure would have to be rebuilt from every row each time the alarm wakes a
+// cold process.
+//
+// Offsets whose time has passed when a bill is added or moved are skipped, except when
+// none is left before the due date (e.g. a bill added the evening before it is due):
+// the latest one is then sent as a catch-up an hour later, as the per-bill alarms did.
+//
+// All the work runs on one background thread, in order.
+public final class ReminderScheduler {
+    static final String ACTION_REMINDER_ALARM = "com.example.rappeldesfactures.action.REMINDER_ALARM";
+
+    private static final String PREFS_NAME = "reminder_scheduler";
+    private static final String PREF_ARMED_AT = "armed_at"; // time of the armed alarm, -1 for none
+    private static final long CATCH_UP_DELAY = TimeUnit.HOURS.toMillis(1);
+    private static final long SNOOZE_DELAY = TimeUnit.DAYS.toMillis(1);
+    // Offset of the row of a snoozed reminder, outside of any plan
+    private static final int SNOOZED_OFFSET = -1;
+    // Id of the made-up bill of the test notification, which is not in the database
+    private static final long TEST_BILL_ID = 9999;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private ReminderScheduler() {
+    }
+
+    // Called once per process (BillReminderApplication): follow bill changes and make
+    // sure the alarm is armed (a force-stop cancels it)
+    static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        BillReminderApplication.getDatabaseHelper(appContext).addChangeListener(
+                change -> EXECUTOR.execute(() -> onBillChanged(appContext, change)));
+        reschedule(appContext, null);
+    }
+
+    // Re-arm the alarm (after boot, a clock change or a permission grant); 'done' runs
+    // on the scheduler thread once it is armed, and may be null
+    public static void reschedule(Context context, Runnable done) {
+        run(context, done, appContext -> arm(appContext, true));
+    }
+
+    // Fire times are wall-clock instants computed for a time zone: move the pending ones
+    // to their plan's time of day in the new zone, then re-arm
+    static void onTimeZoneChanged(Context context, Runnable done) {
+        run(context, done, appContext -> {
+            BillDatabaseHelper dbHelper = BillReminderApplication.getDatabaseHelper(appContext);
+            long now = System.currentTimeMillis();
+            Map<Long, Bill> bills = new HashMap<>();
+            for (BillDatabaseHelper.ScheduledReminder reminder : dbHelper.getPendingReminders()) {
+                if (reminder.offsetDays == SNOOZED_OFFSET) {
+                    continue;
+                }
+                Bill bill = bills.computeIfAbsent(reminder.billId, dbHelper::getBillById);
+                if (bill == null) {
+                    continue;
+                }
+                long fireAt = ReminderTimes.reminderTime(reminder.dueEpochDay, reminder.offsetDays,
+                        bill.getReminderMinuteOfDay());
+                // Catch-ups (set after the reminder time) keep their time
+                if (reminder.fireAt != fireAt && fireAt > now) {
+                    dbHelper.setReminderFireAt(reminder.billId, reminder.dueEpochDay, reminder.offsetDays, fireAt);
+                }
+            }
+            arm(appContext, true);
+        });
+    }
+
+    // The alarm fired: add the occurrences of recurring bills that came within the
+    // horizon (their reminders are registered as the inserts are published), remind
+    // every bill whose reminder time has come, then re-arm. The occurrences are written
+    // by the repository's writer thread, like every bill write, and waited for before
+    // the due reminders are read.
+    static void onAlarm(Context context, BroadcastReceiver.PendingResult pendingResult) {
+        run(context, pendingResult::finish, appContext -> {
+            BillDatabaseHelper dbHelper = BillReminderApplication.getDatabaseHelper(appContext);
+            try {
+                BillReminderApplication.getRepository(appContext).materializeSeries(null).get();
+            } catch (ExecutionException e) {
+                e.printStackTrace(); // Still remind the bills already there
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            // The whole bucket ending now, in case the alarm is a few milliseconds early
+            long dueBy = ReminderTimes.bucketEnd(now);
+            NotificationHelper.showReminders(appContext, dbHelper.getBillsWithRemindersDue(dueBy));
+            dbHelper.markRemindersFired(dueBy);
+            dbHelper.deleteRemindersDueBefore(BillDates.epochDayOf(now));
+            arm(appContext, true);
+        });
+    }
+
+    // "Snooze" on a notification: remind the bill of that due date again in a day. The
+    // row is only replaced, so paying the bill or moving its due date still clears it.
+    static void snooze(Context context, long billId, long dueEpochDay, Runnable done) {
+        run(context, done, appContext -> {
+            BillDatabaseHelper dbHelper = BillReminderApplication.getDatabaseHelper(appContext);
+            dbHelper.addReminder(billId, dueEpochDay, SNOOZED_OFFSET, System.currentTimeMillis() + SNOOZE_DELAY);
+            arm(appContext, false);
+        });
+    }
+
+    // The test button of the main screen: post a made-up bill due today the way the
+    // alarm posts reminders
+    static void showTestReminder(Context context) {
+        run(context, null, appContext -> {
+            Bill bill = new Bill("Facture de Test", Money.ofCents(10000),
+                    BillDates.formatEpochDay(BillDates.todayEpochDay()), false);
+            bill.setId(TEST_BILL_ID);
+            NotificationHelper.showReminders(appContext, Collections.singletonList(bill));
+        });
+    }
+
+    private interface Work {
+        void run(Context appContext);
+    }
+
+    private static void run(Context context, Runnable done, Work work) {
+        Context appContext = context.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            try {
+                work.run(appContext);
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                if (done != null) {
+                    done.run();
+                }
+            }
+        });
+    }
+
+    private static void onBillChanged(Context context, BillChange change) {
+        try {
+            if (syncReminders(BillReminderApplication.getDatabaseHelper(context), change)) {
+                arm(context, false);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Bring the bill's registered reminders in line with the bill: an unpaid bill still
+    // due has one reminder per offset of its plan for its due date (an overdue one keeps
+    // a snoozed reminder), paid bills, other due dates and dropped offsets have none
+    // pending. A changed time of day moves the pending reminders still ahead. Returns
+    // true if a row changed.
+    private static boolean syncReminders(BillDatabaseHelper dbHelper, BillChange change) {
+        if (change.type == BillChange.DELETED) {
+            dbHelper.deleteReminders(change.billId);
+            return true;
+        }
+        Bill bill = change.bill;
+        long due = bill.getDueEpochDay();
+        int offsets = bill.getReminderOffsets();
+        long now = System.currentTimeMillis();
+
+        int registered = 0; // offsets of the plan already registered for the due date
+        boolean changed = false;
+        for (BillDatabaseHelper.ScheduledReminder reminder : dbHelper.getReminders(change.billId)) {
+            boolean current = !bill.isPaid() && reminder.dueEpochDay == due;
+            if (current && reminder.offsetDays == SNOOZED_OFFSET) {
+                continue;
+            }
+            if (current && ReminderTimes.hasOffset(offsets, reminder.offsetDays)) {
+                registered |= ReminderTimes.offsetBit(reminder.offsetDays);
+                long fireAt = ReminderTimes.reminderTime(due, reminder.offsetDays, bill.getReminderMinuteOfDay());
+                if (reminder.state == BillDatabaseHelper.REMINDER_PENDING && reminder.fireAt != fireAt && fireAt > now) {
+                    dbHelper.setReminderFireAt(change.billId, due, reminder.offsetDays, fireAt);
+                    changed = true;
+                }
+            } else if (reminder.state == BillDatabaseHelper.REMINDER_PENDING) {
+                dbHelper.deleteReminder(reminder.billId, reminder.dueEpochDay, reminder.offsetDays);
+                changed = true;
+            }
+        }
+        if (bill.isPaid() || due < BillDates.epochDayOf(now)) {
+            return changed;
+        }
+
+        boolean anyAhead = false;
+        int latestPassed = -1;
+        for (int offset = 0; offset <= ReminderTimes.MAX_OFFSET_DAYS; offset++) {
+            if (!ReminderTimes.hasOffset(offsets, offset)) {
+                continue;
+            }
+            long fireAt = ReminderTimes.reminderTime(due, offset, bill.getReminderMinuteOfDay());
+            if (fireAt > now) {
+                anyAhead = true;
+                if (!ReminderTimes.hasOffset(registered, offset)) {
+                    dbHelper.addReminder(change.billId, due, offset, fireAt);
+                    changed = true;
+                }
+            } else if (latestPassed == -1) {
+                latestPassed = offset; // offsets go up, so the first passed one is the latest
+            }
+        }
+        if (!anyAhead && latestPassed != -1 && registered == 0) {
+            dbHelper.addReminder(change.billId, due, latestPassed, now + CATCH_UP_DELAY);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // Arm the alarm for the bucket of the earliest pending reminder, or of the midnight
+    // at which the next occurrence of a series comes within the horizon, or cancel it if
+    // there is neither. Unless forced, AlarmManager is left alone when the armed alarm
+    // is already the right one.
+    private static void arm(Context context, boolean force) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        BillDatabaseHelper dbHelper = BillReminderApplication.getDatabaseHelper(context);
+        long next = dbHelper.getNextReminderTime();
+        long nextSeriesDue = dbHelper.getNextSeriesDueDay();
+        if (nextSeriesDue != -1) {
+            long materializeAt = ReminderTimes.reminderTime(nextSeriesDue, BillDatabaseHelper.SERIES_HORIZON_DAYS, 0);
+            // Past means the last run failed: wait for the next reminder or app start
+            if (materializeAt > System.currentTimeMillis() && (next == -1 || materializeAt < next)) {
+                next = materializeAt;
+            }
+        }
+        long armAt = next == -1 ? -1 : ReminderTimes.bucketEnd(next);
+        if (!force && prefs.getLong(PREF_ARMED_AT, -1) == armAt) {
+            return;
+        }
+        if (armAt == -1) {
+            NotificationHelper.cancelReminderAlarm(context);
+        } else {
+            NotificationHelper.setReminderAlarm(context, armAt);
+        }
+        prefs.edit().putLong(PREF_ARMED_AT, armAt).apply();
+    }
+}
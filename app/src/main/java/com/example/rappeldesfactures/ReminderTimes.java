@@ -0,0 +1,43 @@
+package com.example.rappeldesfactures;
+
+
+import java.util.concurrent.TimeUnit;
+
+// When reminders fire. Each bill has a reminder plan: a set of offsets, in days before
+// the due date (0 is the due date itself), kept as a bit mask with bit N set for "N
+// days before", and a time of day, in minutes after midnight, device time. The default
+// plan is the reminder the app always had: the day before, at 10:00.
+//
+// Alarms are coalesced into buckets of BUCKET_MILLIS: an alarm always fires at the end
+// of a bucket and handles every reminder due in it, so reminders a few minutes apart
+// (catch-ups, bills added one after the other) share one wakeup.
+final class ReminderTimes {
+    static final int MAX_OFFSET_DAYS = 30;
+    static final int DEFAULT_OFFSETS = offsetBit(1);
+    static final int DEFAULT_MINUTE_OF_DAY = 10 * 60;
+    static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private ReminderTimes() {
+    }
+
+    // Bit of the plan mask for a reminder the given number of days before the due date
+    static int offsetBit(int offsetDays) {
+        return 1 << offsetDays;
+    }
+
+    static boolean hasOffset(int offsets, int offsetDays) {
+        return (offsets & offsetBit(offsetDays)) != 0;
+    }
+
+    // Wall-clock time of the reminder 'offsetDays' before the given due epoch day
+    static long reminderTime(long dueEpochDay, int offsetDays, int minuteOfDay) {
+        return BillDates.toTimeMillis(dueEpochDay - offsetDays, minuteOfDay / 60, minuteOfDay % 60, 0);
+    }
+
+    // End of the bucket holding the given time (the time itself when it is on a bucket
+    // boundary, as 10:00 is). Buckets are aligned on UTC, which is the same as local
+    // time for every time zone offset that is a multiple of 15 minutes.
+    static long bucketEnd(long timeMillis) {
+        return Math.floorDiv(timeMillis + BUCKET_MILLIS - 1, BUCKET_MILLIS) * BUCKET_MILLIS;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class BillDatesTest {
+    @Test
+    public void isoDates_roundTripThroughEpochDays() {
+        assertEquals(0, BillDates.parseEpochDay("1970-01-01"));
+        assertEquals(19782, BillDates.parseEpochDay("2024-02-29"));
+        assertEquals("2024-02-29", BillDates.formatEpochDay(19782));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseEpochDay_rejectsInvalidDates() {
+        BillDates.parseEpochDay("2023-02-29");
+    }
+
+    @Test
+    public void displayFormats_followTheCurrentLocale() {
+        Locale previous = Locale.getDefault();
+        long day = BillDates.toEpochDay(2024, 3, 15);
+        try {
+            Locale.setDefault(Locale.FRANCE);
+            assertEquals("mars 2024", BillDates.formatMonthForDisplay(day));
+            Locale.setDefault(Locale.US);
+            assertEquals("March 2024", BillDates.formatMonthForDisplay(day));
+            assertEquals("15 Mar 2024", BillDates.formatForDisplay(day));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void monthBounds() {
+        long day = BillDates.toEpochDay(2024, 2, 15);
+        assertEquals(BillDates.toEpochDay(2024, 2, 1), BillDates.startOfMonth(day));
+        assertEquals(BillDates.toEpochDay(2024, 2, 29), BillDates.endOfMonth(day));
+    }
+
+    @Test
+    public void nextMonthlyDueDate_isClampedToMonthEnd() {
+        Bill bill = new Bill(1, "Loyer", Money.ofCents(100), "2024-01-31", false, Bill.RECURRENCE_MONTHLY, 1);
+        assertEquals("2024-02-29", bill.getNextDueDate());
+
+        bill.setRecurrenceType(Bill.RECURRENCE_WEEKLY);
+        bill.setRecurrenceInterval(2);
+        assertEquals("2024-02-14", bill.getNextDueDate());
+    }
+}
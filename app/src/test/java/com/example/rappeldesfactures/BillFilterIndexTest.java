@@ -0,0 +1,119 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BillFilterIndexTest {
+    private static final long TODAY = BillDates.toEpochDay(2024, 10, 15);
+
+    private static Bill monthly(Bill bill) {
+        bill.setRecurrenceType(Bill.RECURRENCE_MONTHLY);
+        return bill;
+    }
+
+    private static BillFilterIndex sampleIndex() {
+        BillFilterIndex index = new BillFilterIndex(TODAY);
+        index.put(monthly(TestBills.bill(1, TODAY - 20, false))); // overdue, last month
+        index.put(TestBills.bill(2, TODAY - 2, false));           // overdue, this month
+        index.put(monthly(TestBills.bill(3, TODAY + 5, true)));   // paid, this month
+        index.put(TestBills.bill(4, TODAY + 30, false));          // next month
+        return index;
+    }
+
+    // Ids of the bills the filter selects, in id order
+    private static List<Long> matching(BillFilter filter, BillFilterIndex index, long... ids) {
+        BitSet slots = filter.evaluate(index);
+        List<Long> result = new ArrayList<>();
+        for (long id : ids) {
+            int slot = index.slotOf(id);
+            boolean selected = slot >= 0 && slots.get(slot);
+            // Single-bill evaluation agrees with the bitset one
+            assertEquals(selected, slot >= 0 && filter.matches(index, slot));
+            if (selected) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> list(Long... ids) {
+        List<Long> result = new ArrayList<>();
+        for (Long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    @Test
+    public void combinations_followAndOrNot() {
+        BillFilterIndex index = sampleIndex();
+        BillFilter overdue = BillFilter.predicate(BillFilterIndex.OVERDUE);
+        BillFilter thisMonth = BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH);
+        BillFilter recurring = BillFilter.predicate(BillFilterIndex.RECURRING);
+
+        assertEquals(list(1L, 2L, 3L, 4L), matching(BillFilter.ALL, index, 1, 2, 3, 4));
+        assertEquals(list(1L, 2L, 4L), matching(BillFilter.predicate(BillFilterIndex.UNPAID), index, 1, 2, 3, 4));
+        assertEquals(list(2L), matching(BillFilter.and(overdue, thisMonth), index, 1, 2, 3, 4));
+        assertEquals(list(1L, 2L, 3L), matching(BillFilter.or(overdue, recurring), index, 1, 2, 3, 4));
+        assertEquals(list(4L), matching(BillFilter.not(BillFilter.or(overdue, recurring)), index, 1, 2, 3, 4));
+        assertTrue(BillFilter.or().isAll());
+    }
+
+    @Test
+    public void changes_updateThePredicates() {
+        BillFilterIndex index = sampleIndex();
+        BillFilter unpaid = BillFilter.predicate(BillFilterIndex.UNPAID);
+
+        index.put(TestBills.bill(2, TODAY - 2, true));
+        index.remove(4);
+        assertEquals(3, index.size());
+        assertEquals(-1, index.slotOf(4));
+        assertEquals(list(1L), matching(unpaid, index, 1, 2, 3, 4));
+
+        // A removed bill's slot is reused, and its old bits are gone
+        index.put(TestBills.bill(5, TODAY + 40, true));
+        assertEquals(list(5L), matching(BillFilter.not(BillFilter.or(unpaid,
+                BillFilter.predicate(BillFilterIndex.RECURRING),
+                BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH))), index, 1, 2, 3, 5));
+        assertEquals(3, index.slotOf(5));
+    }
+
+    @Test
+    public void dayChange_recomputesDatePredicates() {
+        BillFilterIndex index = sampleIndex();
+        BillFilter overdue = BillFilter.predicate(BillFilterIndex.OVERDUE);
+        BillFilter thisMonth = BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH);
+
+        index.setToday(TODAY + 20); // 4 November
+        assertEquals(list(1L, 2L), matching(overdue, index, 1, 2, 3, 4));
+        assertEquals(list(4L), matching(thisMonth, index, 1, 2, 3, 4));
+    }
+
+    @Test
+    public void toSql_nestsLikeTheFilter() {
+        String[] conditions = {"unpaid", "overdue", "month", "recurring"};
+        BillFilter filter = BillFilter.not(BillFilter.and(BillFilter.predicate(BillFilterIndex.UNPAID),
+                BillFilter.or(BillFilter.predicate(BillFilterIndex.OVERDUE), BillFilter.predicate(BillFilterIndex.RECURRING))));
+        assertEquals("NOT (unpaid AND (overdue OR recurring))", filter.toSql(conditions));
+        assertEquals("month", BillFilter.or(BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH)).toSql(conditions));
+    }
+
+    @Test
+    public void sameChoices_makeEqualFilters() {
+        BillFilter unpaidThisMonth = BillFilter.and(BillFilter.predicate(BillFilterIndex.UNPAID),
+                BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH));
+        BillFilter again = BillFilter.and(BillFilter.predicate(BillFilterIndex.UNPAID),
+                BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH));
+        assertEquals(unpaidThisMonth, again);
+        assertEquals(unpaidThisMonth.hashCode(), again.hashCode());
+        assertEquals(BillFilter.ALL, BillFilter.or());
+        assertNotEquals(unpaidThisMonth, BillFilter.or(BillFilter.predicate(BillFilterIndex.UNPAID),
+                BillFilter.predicate(BillFilterIndex.DUE_THIS_MONTH)));
+        assertNotEquals(unpaidThisMonth, BillFilter.not(unpaidThisMonth));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BillSearchTest {
+    @Test
+    public void words_becomePrefixTerms() {
+        assertEquals("redal*", BillSearch.matchQuery("Redal"));
+        assertEquals("tele* maroc*", BillSearch.matchQuery("  tele   Maroc "));
+        assertEquals("électricité*", BillSearch.matchQuery("Électricité"));
+    }
+
+    @Test
+    public void operatorsAndQuotes_areDropped() {
+        assertEquals("eau* or* gaz*", BillSearch.matchQuery("eau OR gaz"));
+        assertEquals("redal* eau*", BillSearch.matchQuery("\"redal\" -eau*"));
+    }
+
+    @Test
+    public void textWithoutWords_isNoQuery() {
+        assertNull(BillSearch.matchQuery(null));
+        assertNull(BillSearch.matchQuery(""));
+        assertNull(BillSearch.matchQuery(" *-\" "));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BillSortIndexTest {
+    private static final long TODAY = 20000;
+
+    private static long[] ids(List<Bill> bills) {
+        long[] ids = new long[bills.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = bills.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static BillSortIndex sampleIndex() {
+        BillSortIndex index = new BillSortIndex(TODAY);
+        index.put(TestBills.bill(1, "eau", 5000, TODAY + 10, false));
+        index.put(TestBills.bill(2, "Internet", 30000, TODAY - 2, false));
+        index.put(TestBills.bill(3, "Électricité", 12000, TODAY + 1, true));
+        index.put(TestBills.bill(4, "assurance", 30000, TODAY, false));
+        return index;
+    }
+
+    @Test
+    public void everyOptionHasItsOrder() {
+        BillSortIndex index = sampleIndex();
+        assertArrayEquals(new long[]{2, 4, 3, 1}, ids(index.getSorted(BillSortIndex.SORT_DUE_DATE, TODAY)));
+        // Equal amounts fall back to the due date
+        assertArrayEquals(new long[]{2, 4, 3, 1}, ids(index.getSorted(BillSortIndex.SORT_AMOUNT, TODAY)));
+        // Same order as String.compareToIgnoreCase
+        assertArrayEquals(new long[]{4, 1, 2, 3}, ids(index.getSorted(BillSortIndex.SORT_NAME, TODAY)));
+        assertArrayEquals(new long[]{2, 4, 1, 3}, ids(index.getSorted(BillSortIndex.SORT_STATUS, TODAY)));
+    }
+
+    @Test
+    public void sortedLists_areCachedUntilAChange() {
+        BillSortIndex index = sampleIndex();
+        List<Bill> byName = index.getSorted(BillSortIndex.SORT_NAME, TODAY);
+        assertSame(byName, index.getSorted(BillSortIndex.SORT_NAME, TODAY));
+
+        index.put(TestBills.bill(1, "Zakat", 5000, TODAY + 10, false));
+        index.remove(2);
+        assertArrayEquals(new long[]{4, 1, 3}, ids(index.getSorted(BillSortIndex.SORT_NAME, TODAY)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void comparator_matchesSortedOrder() {
+        BillSortIndex index = sampleIndex();
+        List<Bill> byAmount = index.getSorted(BillSortIndex.SORT_AMOUNT, TODAY);
+        for (int i = 1; i < byAmount.size(); i++) {
+            assertTrue(index.comparator(BillSortIndex.SORT_AMOUNT, TODAY)
+                    .compare(byAmount.get(i - 1), byAmount.get(i)) < 0);
+        }
+    }
+
+    @Test
+    public void order_matchesSortedOrder_forEveryOption() {
+        BillSortIndex index = sampleIndex();
+        for (int option = BillSortIndex.SORT_DUE_DATE; option <= BillSortIndex.SORT_STATUS; option++) {
+            List<Bill> sorted = index.getSorted(option, TODAY);
+            for (int i = 1; i < sorted.size(); i++) {
+                assertTrue(BillSortIndex.order(option, TODAY).compare(sorted.get(i - 1), sorted.get(i)) < 0);
+            }
+        }
+    }
+
+    @Test
+    public void statusOrder_isPaidThenDueDate() {
+        // What the SQL status order relies on, whatever the day
+        BillSortIndex index = sampleIndex();
+        for (long day = TODAY - 15; day <= TODAY + 15; day++) {
+            assertArrayEquals(new long[]{2, 4, 1, 3}, ids(index.getSorted(BillSortIndex.SORT_STATUS, day)));
+        }
+    }
+}
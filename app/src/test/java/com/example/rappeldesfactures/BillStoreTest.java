@@ -0,0 +1,102 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BillStoreTest {
+    private static List<Bill> bills(long fromId, long toId) {
+        List<Bill> bills = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            bills.add(TestBills.bill(id, 20000 + id, false));
+        }
+        return bills;
+    }
+
+    @Test
+    public void pagesInsideLoadedPrefix_areServedFromMemory() {
+        BillStore store = new BillStore();
+        assertNull(store.getPage(null, 2));
+
+        List<Bill> firstPage = bills(1, 2);
+        store.putPage(null, firstPage, 2, store.beginRead());
+
+        List<Bill> cached = store.getPage(null, 2);
+        assertNotNull(cached);
+        assertEquals(2, cached.size());
+        // The second page has not been read yet
+        assertNull(store.getPage(firstPage.get(1), 2));
+        assertNull(store.getPage(null, 3));
+    }
+
+    @Test
+    public void shortPage_marksStoreComplete() {
+        BillStore store = new BillStore();
+        store.putPage(null, bills(1, 3), 10, store.beginRead());
+
+        // Pages past the end of the table are answered too
+        assertEquals(3, store.getPage(null, 10).size());
+        assertEquals(1, store.getPage(store.getById(2), 10).size());
+        assertEquals(2, store.getPage(null, 2).size());
+    }
+
+    @Test
+    public void writes_areVisibleInSortedView() {
+        BillStore store = new BillStore();
+        store.putPage(null, bills(1, 3), 10, store.beginRead());
+
+        Bill moved = TestBills.bill(3, 19000, false);
+        store.onBillSaved(moved);
+        store.onBillDeleted(1);
+        store.onBillSaved(TestBills.bill(4, 20010, true));
+
+        List<Bill> all = store.getPage(null, 10);
+        assertEquals(3, all.size());
+        assertEquals(3, all.get(0).getId());
+        assertEquals(2, all.get(1).getId());
+        assertEquals(4, all.get(2).getId());
+        assertEquals(1, store.getUnpaidBetween(20000, 20100).size());
+    }
+
+    @Test
+    public void readRacingWithWrite_isNotCached() {
+        BillStore store = new BillStore();
+        long readVersion = store.beginRead();
+        store.onBillSaved(TestBills.bill(1, 20001, true));
+
+        // Stale row read before the write landed
+        store.putPage(null, bills(1, 1), 10, readVersion);
+
+        assertTrue(store.getById(1).isPaid());
+        assertNull(store.getPage(null, 10));
+    }
+
+    @Test
+    public void cachedBills_areCopies() {
+        BillStore store = new BillStore();
+        Bill original = TestBills.bill(1, 20001, false);
+        store.onBillSaved(original);
+
+        original.setPaid(true);
+        assertFalse(store.getById(1).isPaid());
+    }
+
+    @Test
+    public void changeEvents_updateTheStore() {
+        BillStore store = new BillStore();
+        store.putPage(null, bills(1, 2), 10, store.beginRead());
+
+        store.onBillChanged(new BillChange(BillChange.INSERTED, 3, TestBills.bill(3, 20003, false), 1));
+        store.onBillChanged(new BillChange(BillChange.UPDATED, 1, TestBills.bill(1, 20001, true), 2));
+        store.onBillChanged(new BillChange(BillChange.DELETED, 2, null, 3));
+
+        List<Bill> all = store.getPage(null, 10);
+        assertEquals(2, all.size());
+        assertTrue(all.get(0).isPaid());
+        assertEquals(3, all.get(1).getId());
+        assertNull(store.getById(2));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class CashFlowForecastTest {
+    private static final long TODAY = BillDates.toEpochDay(2024, 3, 15);
+
+    @Test
+    public void months_runFromTheCurrentMonth() {
+        CashFlowForecast forecast = compute(Collections.emptyList(), Collections.emptyList());
+        assertEquals(CashFlowForecast.MONTHS, forecast.getMonthCount());
+        assertEquals(BillDates.toEpochDay(2024, 3, 1), forecast.getMonthStart(0));
+        assertEquals(BillDates.toEpochDay(2025, 2, 1), forecast.getMonthStart(11));
+        assertEquals(BillDates.toEpochDay(2025, 3, 1), forecast.toEpochDay);
+        // 351 days from today, the last week being cut short
+        assertEquals(51, forecast.getWeekCount());
+        assertEquals(TODAY + 7, forecast.getWeekStart(1));
+    }
+
+    @Test
+    public void unpaidBills_areCountedInTheirMonthAndWeek() {
+        List<Bill> bills = new ArrayList<>();
+        bills.add(TestBills.bill(0, "Facture", 1000, TODAY, false));
+        bills.add(TestBills.bill(0, "Facture", 250, TODAY + 6, false));
+        bills.add(TestBills.bill(0, "Facture", 500, BillDates.toEpochDay(2024, 4, 2), false));
+        bills.add(TestBills.bill(0, "Facture", 9999, TODAY + 1, true)); // paid
+        bills.add(TestBills.bill(0, "Facture", 9999, TODAY - 1, false)); // before the forecast
+        bills.add(TestBills.bill(0, "Facture", 9999, BillDates.toEpochDay(2025, 3, 1), false)); // after it
+
+        CashFlowForecast forecast = compute(bills, Collections.emptyList());
+        assertEquals(Money.ofCents(1250), forecast.getMonthTotal(0));
+        assertEquals(Money.ofCents(500), forecast.getMonthTotal(1));
+        assertEquals(Money.ofCents(1250), forecast.getWeekTotal(0));
+        assertEquals(Money.ofCents(1750), forecast.getTotal());
+    }
+
+    @Test
+    public void series_expandFromTheirNextOccurrence() {
+        // Monthly on the 31st, anchored in January, occurrences up to March already added
+        Bill rent = TestBills.bill(0, "Facture", 100000, BillDates.toEpochDay(2024, 1, 31), false);
+        rent.setRecurrenceType(Bill.RECURRENCE_MONTHLY);
+        rent.setRecurrenceInterval(1);
+        BillSeries series = new BillSeries(rent, BillDates.toEpochDay(2024, 4, 30));
+
+        CashFlowForecast forecast = compute(Collections.emptyList(), Collections.singletonList(series));
+        assertEquals(Money.ZERO, forecast.getMonthTotal(0));
+        for (int month = 1; month < CashFlowForecast.MONTHS; month++) {
+            assertEquals(Money.ofCents(100000), forecast.getMonthTotal(month));
+        }
+        // February 2025 is clamped to the 28th, still within the forecast
+        assertEquals(Money.ofCents(1100000), forecast.getTotal());
+    }
+
+    @Test
+    public void manySeries_sumLikeOne() {
+        // Enough series for the work to be split between tasks
+        List<BillSeries> series = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Bill weekly = TestBills.bill(0, "Facture", 100, TODAY + i % 7, false);
+            weekly.setRecurrenceType(Bill.RECURRENCE_WEEKLY);
+            weekly.setRecurrenceInterval(1);
+            series.add(new BillSeries(weekly, weekly.getDueEpochDay()));
+        }
+        CashFlowForecast forecast = compute(Collections.emptyList(), series);
+
+        long expected = 0;
+        for (int week = 0; week < forecast.getWeekCount(); week++) {
+            long weekEnd = Math.min(forecast.getWeekStart(week) + 7, forecast.toEpochDay);
+            // Each series falls once in a full week, and on its own weekday in the last one
+            long cents = 0;
+            for (int i = 0; i < 500; i++) {
+                long day = TODAY + i % 7 + 7L * week;
+                if (day < weekEnd) {
+                    cents += 100;
+                }
+            }
+            assertEquals(Money.ofCents(cents), forecast.getWeekTotal(week));
+            expected += cents;
+        }
+        assertEquals(Money.ofCents(expected), forecast.getTotal());
+    }
+
+    private static CashFlowForecast compute(List<Bill> bills, List<BillSeries> series) {
+        return CashFlowForecast.compute(TODAY, bills, series, ForkJoinPool.commonPool());
+    }
+}
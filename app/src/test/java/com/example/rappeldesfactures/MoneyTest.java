@@ -0,0 +1,34 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+    @Test
+    public void parse_acceptsDotAndCommaDecimals() {
+        assertEquals(35000, Money.parse("350").getCents());
+        assertEquals(35050, Money.parse("350.5").getCents());
+        assertEquals(35050, Money.parse("350,50").getCents());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsSubCentAmounts() {
+        Money.parse("1.234");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsText() {
+        Money.parse("abc");
+    }
+
+    @Test
+    public void plus_isExact() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.parse("0.10"));
+        }
+        assertEquals(Money.ofCents(100), total);
+        assertEquals("1.00", total.toPlainString());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonthCalendarCacheTest {
+    private static final long MARCH = BillDates.toEpochDay(2024, 3, 1);
+    private static final long APRIL = BillDates.toEpochDay(2024, 4, 1);
+    private static final long MAY = BillDates.toEpochDay(2024, 5, 1);
+
+    private static MonthCalendar month(long monthStartEpochDay) {
+        int length = (int) (BillDates.endOfMonth(monthStartEpochDay) - monthStartEpochDay + 1);
+        return new MonthCalendar(monthStartEpochDay, new int[length], new int[length], new long[length]);
+    }
+
+    private static MonthCalendarCache cacheOf(long... monthStarts) {
+        MonthCalendarCache cache = new MonthCalendarCache();
+        for (long monthStart : monthStarts) {
+            cache.put(month(monthStart), cache.beginRead());
+        }
+        return cache;
+    }
+
+    @Test
+    public void insert_dropsOnlyItsMonth() {
+        MonthCalendarCache cache = cacheOf(MARCH, APRIL, MAY);
+        cache.onBillChanged(new BillChange(BillChange.INSERTED, 1, TestBills.bill(1, APRIL + 10, false), 1));
+        assertNotNull(cache.get(MARCH));
+        assertNull(cache.get(APRIL));
+        assertNotNull(cache.get(MAY));
+    }
+
+    @Test
+    public void update_dropsTheOldAndTheNewMonth() {
+        MonthCalendarCache cache = cacheOf(MARCH, APRIL, MAY);
+        cache.onBillChanged(new BillChange(BillChange.UPDATED, 1, TestBills.bill(1, MAY + 2, false), MARCH + 30, 1));
+        assertNull(cache.get(MARCH));
+        assertNotNull(cache.get(APRIL));
+        assertNull(cache.get(MAY));
+    }
+
+    @Test
+    public void delete_dropsItsMonth_orEverythingWhenTheDateIsUnknown() {
+        MonthCalendarCache cache = cacheOf(MARCH, APRIL, MAY);
+        cache.onBillChanged(new BillChange(BillChange.DELETED, 1, null, APRIL, 1));
+        assertNotNull(cache.get(MARCH));
+        assertNull(cache.get(APRIL));
+
+        cache.onBillChanged(new BillChange(BillChange.DELETED, 2, null, 2));
+        assertNull(cache.get(MARCH));
+        assertNull(cache.get(MAY));
+    }
+
+    @Test
+    public void readRacingWithWrite_isNotCached() {
+        MonthCalendarCache cache = new MonthCalendarCache();
+        long readVersion = cache.beginRead();
+        cache.onBillChanged(new BillChange(BillChange.INSERTED, 1, TestBills.bill(1, MARCH, false), 1));
+        cache.put(month(MARCH), readVersion);
+        assertNull(cache.get(MARCH));
+    }
+
+    @Test
+    public void leastRecentlyUsedMonth_isEvicted() {
+        MonthCalendarCache cache = new MonthCalendarCache();
+        long monthStart = MARCH;
+        for (int i = 0; i < MonthCalendarCache.MAX_MONTHS; i++) {
+            cache.put(month(monthStart), cache.beginRead());
+            monthStart = BillDates.toLocalDate(monthStart).plusMonths(1).toEpochDay();
+        }
+        assertNotNull(cache.get(MARCH)); // now the most recently used
+        cache.put(month(monthStart), cache.beginRead());
+        assertNotNull(cache.get(MARCH));
+        assertNull(cache.get(APRIL));
+    }
+
+    @Test
+    public void monthCalendar_startsOnTheRightWeekday() {
+        // 1 March 2024 was a Friday
+        MonthCalendar march = month(MARCH);
+        assertEquals(5, march.getFirstDayOfWeek());
+        assertEquals(31, march.getLengthOfMonth());
+        assertEquals(MARCH + 14, march.getEpochDay(15));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class RecurrenceIteratorTest {
+
+    @Test
+    public void monthly_onThe31st_clampsWithoutDrifting() {
+        RecurrenceIterator dates = new RecurrenceIterator(BillDates.toEpochDay(2024, 1, 31), Bill.RECURRENCE_MONTHLY, 1);
+        assertEquals(BillDates.toEpochDay(2024, 1, 31), dates.next());
+        assertEquals(BillDates.toEpochDay(2024, 2, 29), dates.next());
+        assertEquals(BillDates.toEpochDay(2024, 3, 31), dates.next());
+        assertEquals(BillDates.toEpochDay(2024, 4, 30), dates.next());
+        assertEquals(BillDates.toEpochDay(2024, 5, 31), dates.next());
+    }
+
+    @Test
+    public void yearly_onFebruary29_fallsBackToThe28th() {
+        RecurrenceIterator dates = new RecurrenceIterator(BillDates.toEpochDay(2024, 2, 29), Bill.RECURRENCE_YEARLY, 1);
+        dates.next();
+        assertEquals(BillDates.toEpochDay(2025, 2, 28), dates.next());
+        assertEquals(BillDates.toEpochDay(2026, 2, 28), dates.next());
+        assertEquals(BillDates.toEpochDay(2027, 2, 28), dates.next());
+        assertEquals(BillDates.toEpochDay(2028, 2, 29), dates.next());
+    }
+
+    @Test
+    public void occurrences_matchLocalDateFromTheAnchor() {
+        int[] types = {Bill.RECURRENCE_DAILY, Bill.RECURRENCE_WEEKLY, Bill.RECURRENCE_MONTHLY, Bill.RECURRENCE_YEARLY};
+        for (long anchor = BillDates.toEpochDay(2023, 12, 25); anchor <= BillDates.toEpochDay(2024, 3, 5); anchor++) {
+            for (int type : types) {
+                for (int interval = 1; interval <= 3; interval++) {
+                    RecurrenceIterator dates = new RecurrenceIterator(anchor, type, interval);
+                    for (int n = 0; n < 40; n++) {
+                        assertEquals(expected(anchor, type, (long) n * interval), dates.next());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void skipTo_landsOnTheFirstOccurrenceOnOrAfter() {
+        int[] types = {Bill.RECURRENCE_DAILY, Bill.RECURRENCE_WEEKLY, Bill.RECURRENCE_MONTHLY, Bill.RECURRENCE_YEARLY};
+        long anchor = BillDates.toEpochDay(2024, 1, 31);
+        for (int type : types) {
+            for (int interval = 1; interval <= 3; interval++) {
+                for (long target = anchor - 3; target < anchor + 800; target += 5) {
+                    RecurrenceIterator dates = new RecurrenceIterator(anchor, type, interval);
+                    dates.skipTo(target);
+                    long first = dates.next();
+                    assertTrue(first >= target);
+
+                    // The occurrence before it, if any, is before the target
+                    RecurrenceIterator walk = new RecurrenceIterator(anchor, type, interval);
+                    long previous = Long.MIN_VALUE;
+                    long current = walk.next();
+                    while (current < first) {
+                        previous = current;
+                        current = walk.next();
+                    }
+                    assertEquals(first, current);
+                    assertTrue(previous < target);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void skipTo_neverMovesBack() {
+        RecurrenceIterator dates = new RecurrenceIterator(BillDates.toEpochDay(2024, 1, 15), Bill.RECURRENCE_MONTHLY, 1);
+        dates.skipTo(BillDates.toEpochDay(2024, 6, 1));
+        dates.skipTo(BillDates.toEpochDay(2024, 2, 1));
+        assertEquals(BillDates.toEpochDay(2024, 6, 15), dates.next());
+    }
+
+    @Test
+    public void noRecurrence_hasOnlyTheAnchor() {
+        RecurrenceIterator dates = new RecurrenceIterator(100, Bill.RECURRENCE_NONE, 1);
+        assertTrue(dates.hasNext());
+        assertEquals(100, dates.next());
+        assertFalse(dates.hasNext());
+    }
+
+    private static long expected(long anchor, int type, long steps) {
+        LocalDate date = LocalDate.ofEpochDay(anchor);
+        switch (type) {
+            case Bill.RECURRENCE_DAILY:
+                return date.plusDays(steps).toEpochDay();
+            case Bill.RECURRENCE_WEEKLY:
+                return date.plusWeeks(steps).toEpochDay();
+            case Bill.RECURRENCE_MONTHLY:
+                return date.plusMonths(steps).toEpochDay();
+            default:
+                return date.plusYears(steps).toEpochDay();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.rappeldesfactures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReminderTimesTest {
+    private static final long DUE = BillDates.toEpochDay(2024, 3, 15);
+
+    @Test
+    public void defaultPlan_isTheDayBeforeAtTen() {
+        assertTrue(ReminderTimes.hasOffset(ReminderTimes.DEFAULT_OFFSETS, 1));
+        assertFalse(ReminderTimes.hasOffset(ReminderTimes.DEFAULT_OFFSETS, 0));
+        assertEquals(BillDates.toTimeMillis(DUE - 1, 10, 0, 0),
+                ReminderTimes.reminderTime(DUE, 1, ReminderTimes.DEFAULT_MINUTE_OF_DAY));
+    }
+
+    @Test
+    public void reminderTime_usesOffsetAndTimeOfDay() {
+        assertEquals(BillDates.toTimeMillis(DUE - 7, 8, 30, 0), ReminderTimes.reminderTime(DUE, 7, 8 * 60 + 30));
+        assertEquals(BillDates.toTimeMillis(DUE, 0, 0, 0), ReminderTimes.reminderTime(DUE, 0, 0));
+    }
+
+    @Test
+    public void offsets_combineAsBits() {
+        int plan = ReminderTimes.offsetBit(7) | ReminderTimes.offsetBit(3) | ReminderTimes.offsetBit(0);
+        assertTrue(ReminderTimes.hasOffset(plan, 7));
+        assertTrue(ReminderTimes.hasOffset(plan, 3));
+        assertTrue(ReminderTimes.hasOffset(plan, 0));
+        assertFalse(ReminderTimes.hasOffset(plan, 1));
+        assertTrue(ReminderTimes.hasOffset(ReminderTimes.offsetBit(ReminderTimes.MAX_OFFSET_DAYS),
+                ReminderTimes.MAX_OFFSET_DAYS));
+    }
+
+    @Test
+    public void bucketEnd_roundsUpToTheBucket() {
+        long reminder = ReminderTimes.reminderTime(DUE, 1, ReminderTimes.DEFAULT_MINUTE_OF_DAY);
+        // A reminder time on a boundary stays where it is
+        assertEquals(reminder, ReminderTimes.bucketEnd(reminder));
+        assertEquals(reminder + ReminderTimes.BUCKET_MILLIS, ReminderTimes.bucketEnd(reminder + 1));
+        assertEquals(reminder + ReminderTimes.BUCKET_MILLIS,
+                ReminderTimes.bucketEnd(reminder + ReminderTimes.BUCKET_MILLIS - 1));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.rappeldesfactures;
+
+// Bills for the unit tests, with only the fields the tests look at
+final class TestBills {
+    private TestBills() {
+    }
+
+    static Bill bill(long id, String name, long cents, long dueEpochDay, boolean paid) {
+        Bill bill = new Bill();
+        bill.setId(id);
+        bill.setName(name);
+        bill.setAmount(Money.ofCents(cents));
+        bill.setDueEpochDay(dueEpochDay);
+        bill.setPaid(paid);
+        return bill;
+    }
+
+    // "Facture <id>" for 1 MAD per id
+    static Bill bill(long id, long dueEpochDay, boolean paid) {
+        return bill(id, "Facture " + id, 100 * id, dueEpochDay, paid);
+    }
+}